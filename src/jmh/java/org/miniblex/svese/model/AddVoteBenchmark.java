@@ -0,0 +1,127 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Throughput of {@link VotingPaper#addVote} with an increasing number of
+ * concurrent voters, with and without journal. Every invocation is the vote of
+ * a new person: creating the {@link Person} is part of the measure.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AddVoteBenchmark {
+	private static final int VOTES = 1024; // power of 2
+
+	@Param({ "CATEGORICAL", "ORDINAL", "PREFERENCED", "REFERENDUM", "SCHULZE", "RANKED_PAIRS", "IRV", "STV" })
+	private ElectionMethod method;
+
+	@Param({ "false", "true" })
+	private boolean journaled;
+
+	private Session session;
+	private VotingPaper paper;
+	private Vote[] votes;
+	private Path journalDir;
+	private final AtomicLong voters = new AtomicLong();
+
+	@Setup(Level.Iteration)
+	public void setUp() throws IOException {
+		BenchmarkData.usePeople(List.of()); // the voters are not in the roll: the decider is asked about each of them
+		session = BenchmarkData.runningSession(BenchmarkData.paper(method, 5));
+		if (journaled) {
+			journalDir = Files.createTempDirectory("svese-jmh");
+			session.openJournal(journalDir, BenchmarkData.GUARANTORS);
+		}
+		paper = session.getPapers().get(0);
+		Random r = new Random(VOTES);
+		votes = new Vote[VOTES];
+		for (int i = 0; i < VOTES; i++)
+			votes[i] = BenchmarkData.randomVote(paper, r);
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDown() throws IOException {
+		session.retire();
+		if (journalDir != null) {
+			try (Stream<Path> files = Files.walk(journalDir)) {
+				for (Path f : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator)
+					Files.delete(f);
+			}
+			journalDir = null;
+		}
+	}
+
+	private void vote() {
+		long n = voters.incrementAndGet();
+		paper.addVote(votes[(int) n & (VOTES - 1)], BenchmarkData.person("V" + n, BenchmarkData.ADULT));
+	}
+
+	@Benchmark
+	@Threads(1)
+	public void threads1() {
+		vote();
+	}
+
+	@Benchmark
+	@Threads(4)
+	public void threads4() {
+		vote();
+	}
+
+	@Benchmark
+	@Threads(16)
+	public void threads16() {
+		vote();
+	}
+
+	@Benchmark
+	@Threads(64)
+	public void threads64() {
+		vote();
+	}
+
+}
@@ -0,0 +1,198 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Proxy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Random;
+import java.util.function.Consumer;
+
+import org.miniblex.svese.SVeSE;
+import org.miniblex.svese.model.Session.SessionParameters;
+
+/**
+ * Synthetic data for the benchmarks: people, papers, sessions and votes, and a
+ * {@link PersonRepository} kept in memory.
+ */
+final class BenchmarkData {
+	static final LocalDate ADULT = LocalDate.of(1980, 1, 1); // birth date of an adult voter
+	static final List<Person> GUARANTORS = List.of(person("GUARANTOR", ADULT));
+
+	static final Instant NOW = Instant.parse("2022-03-15T12:00:00Z"); // the day of the benchmarks, for repeatable ages
+
+	static {
+		DayClock.setClock(Clock.fixed(NOW, ZoneOffset.UTC));
+		Session.setAdmin(person("ADMIN", ADULT));
+	}
+
+	private BenchmarkData() {
+	}
+
+	/**
+	 * Returns a new person with the given SSN and birth date.
+	 */
+	static Person person(String ssn, LocalDate birthDate) {
+		return new Person(ssn, "Mario", "Rossi", birthDate, "Milano");
+	}
+
+	/**
+	 * Returns {@code n} people born in the last 100 years, about four fifths of
+	 * which are adults.
+	 */
+	static List<Person> people(int n, long seed) {
+		Random r = new Random(seed);
+		LocalDate now = DayClock.today();
+		List<Person> res = new ArrayList<>(n);
+		for (int i = 0; i < n; i++)
+			res.add(person("P" + i, now.minusDays(r.nextInt(365 * 100))));
+		return res;
+	}
+
+	/**
+	 * Returns a paper with the given method and number of choices. A referendum
+	 * has always two choices, and every choice of a preferenced paper has a
+	 * categorical subpaper with three choices.
+	 */
+	static VotingPaper paper(ElectionMethod method, int choices) {
+		if (method == ElectionMethod.REFERENDUM)
+			choices = 2;
+		Map<Choice, VotingPaper> map = new LinkedHashMap<>();
+		for (int i = 0; i < choices; i++)
+			map.put(new Choice("c" + i), method == ElectionMethod.PREFERENCED ? paper(ElectionMethod.CATEGORICAL, 3) : null);
+		return new VotingPaper(method + " paper", map, method, new AdultDecider());
+	}
+
+	/**
+	 * Returns a session of the given papers which is running, without journal.
+	 * The papers of the session are copies of the given ones.
+	 */
+	static Session runningSession(VotingPaper... papers) {
+		return approvedSession(LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), papers);
+	}
+
+	/**
+	 * Returns a session of the given papers which is closed, without journal.
+	 * The papers of the session are copies of the given ones.
+	 */
+	static Session closedSession(VotingPaper... papers) {
+		return approvedSession(LocalDateTime.now().minusDays(2), LocalDateTime.now().minusDays(1), papers);
+	}
+
+	private static Session approvedSession(LocalDateTime start, LocalDateTime end, VotingPaper... papers) {
+		SessionParameters params = new SessionParameters();
+		params.setStart(start);
+		params.setEnd(end);
+		for (VotingPaper p : papers)
+			params.addPaper(p);
+		Session s = new Session("benchmark", params, GUARANTORS);
+		s.setReady();
+		for (Person g : GUARANTORS)
+			s.approve(g);
+		return s;
+	}
+
+	/**
+	 * Returns a random vote for the given paper.
+	 */
+	static Vote randomVote(VotingPaper p, Random r) {
+		List<Choice> choices = new ArrayList<>(p.getChoices());
+		Choice c = choices.get(r.nextInt(choices.size()));
+		switch (p.getMethod()) {
+		case ORDINAL:
+		case SCHULZE:
+		case RANKED_PAIRS:
+		case IRV:
+		case STV:
+			Collections.shuffle(choices, r);
+			return new OrdinalVote(choices);
+		case REFERENDUM:
+			return new ReferendumVote(c);
+		case PREFERENCED:
+			return new PreferencedVote(c);
+		default:
+			return new CategoricalVote(c);
+		}
+	}
+
+	/**
+	 * Makes {@link SVeSE#getPersonRepo} return a repository of the given people,
+	 * kept in memory. The repository supports {@code findAll()}, {@code scan},
+	 * {@code count()} and {@code findById}. As the benchmark papers only use the default
+	 * {@link AdultDecider}, {@code count(Specification)} counts the adults.
+	 */
+	static void usePeople(List<Person> people) {
+		Map<String, Person> bySsn = new HashMap<>();
+		for (Person p : people)
+			bySsn.put(p.getSsn(), p);
+		EligibilityCache.invalidate(); // counted on other people
+		AdultDecider adult = new AdultDecider();
+		PersonRepository repo = (PersonRepository) Proxy.newProxyInstance(PersonRepository.class.getClassLoader(), new Class<?>[] { PersonRepository.class }, (proxy, m, args) -> {
+			int argc = args == null ? 0 : args.length;
+			switch (m.getName() + "/" + argc) {
+			case "findAll/0":
+				return people;
+			case "scan/1":
+				@SuppressWarnings("unchecked")
+				Consumer<Person> action = (Consumer<Person>) args[0];
+				people.forEach(action);
+				return null;
+			case "count/0":
+				return (long) people.size();
+			case "count/1":
+				return people.stream().filter(adult::canVote).count();
+			case "findById/1":
+				return Optional.ofNullable(bySsn.get(args[0]));
+			case "hashCode/0":
+				return System.identityHashCode(proxy);
+			case "equals/1":
+				return proxy == args[0];
+			case "toString/0":
+				return "SyntheticPersonRepository[" + people.size() + " people]";
+			default:
+				throw new UnsupportedOperationException(m.toString());
+			}
+		});
+		try {
+			Constructor<SVeSE> constructor = SVeSE.class.getDeclaredConstructor();
+			constructor.setAccessible(true);
+			SVeSE context = constructor.newInstance();
+			Field repoField = SVeSE.class.getDeclaredField("personRepo");
+			repoField.setAccessible(true);
+			repoField.set(context, repo);
+			Field contextField = SVeSE.class.getDeclaredField("context");
+			contextField.setAccessible(true);
+			contextField.set(null, context);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("cannot install the synthetic person repository", e);
+		}
+	}
+
+}
@@ -0,0 +1,96 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of {@link Session#howManyEligible} over a repository of synthetic
+ * people, with and without the {@link EligibilityCache}, of a single
+ * {@link AdultDecider#canVote}, and of a single {@link VotingPaper#canVote}
+ * answered by the {@link ElectoralRoll} of a running session. The decider is
+ * wrapped so that it has no specification and is evaluated in Java, as the
+ * database is not available to the benchmarks.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class EligibilityBenchmark {
+	private static final int SAMPLE = 1024; // power of 2
+
+	@Param({ "10000", "1000000" })
+	private int people;
+
+	private Session session;
+	private VotingPaper running; // paper of a running session, with its roll
+	private VoteDecider decider;
+	private Person[] sample;
+	private int next = 0;
+
+	@Setup
+	public void setUp() {
+		List<Person> all = BenchmarkData.people(people, people);
+		BenchmarkData.usePeople(all);
+		session = BenchmarkData.closedSession(BenchmarkData.paper(ElectionMethod.CATEGORICAL, 2));
+		running = BenchmarkData.runningSession(BenchmarkData.paper(ElectionMethod.CATEGORICAL, 2)).getPapers().get(0);
+		AdultDecider adult = new AdultDecider();
+		decider = p -> adult.canVote(p);
+		sample = all.subList(0, SAMPLE).toArray(new Person[SAMPLE]);
+	}
+
+	@Benchmark
+	public long howManyEligible() {
+		EligibilityCache.invalidate();
+		return session.howManyEligible(decider);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public long howManyEligibleCached() {
+		return session.howManyEligible(decider);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean canVote() {
+		return decider.canVote(sample[next++ & (SAMPLE - 1)]);
+	}
+
+	@Benchmark
+	@OutputTimeUnit(TimeUnit.NANOSECONDS)
+	public boolean canVoteRoll() {
+		return running.canVote(sample[next++ & (SAMPLE - 1)]);
+	}
+
+}
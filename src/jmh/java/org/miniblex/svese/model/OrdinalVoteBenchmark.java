@@ -0,0 +1,80 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of {@link OrdinalVote#getValue}, for the last choice of the order and
+ * for every choice of the paper.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrdinalVoteBenchmark {
+	@Param({ "5", "20", "100" })
+	private int choices;
+
+	private List<Choice> all;
+	private OrdinalVote vote;
+	private Choice last;
+
+	@Setup
+	public void setUp() {
+		all = new ArrayList<>(choices);
+		for (int i = 0; i < choices; i++)
+			all.add(new Choice("c" + i));
+		List<Choice> order = new ArrayList<>(all);
+		Collections.shuffle(order, new Random(choices));
+		vote = new OrdinalVote(order);
+		last = order.get(choices - 1);
+	}
+
+	@Benchmark
+	public int getValueLast() {
+		return vote.getValue(last);
+	}
+
+	@Benchmark
+	public long getValueAll() {
+		long sum = 0;
+		for (Choice c : all)
+			sum += vote.getValue(c);
+		return sum;
+	}
+
+}
@@ -0,0 +1,86 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.miniblex.svese.model.VotingPaper.Results;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Time of generating the results of a closed paper with an increasing number
+ * of ballots. The results include the turnout, computed over a repository of
+ * {@value #PEOPLE} people. {@link VotingPaper#getResults} only generates them
+ * once, and is measured as well. Also measures the time of rebuilding the
+ * tallies from the ballots, as done when a journal is replayed.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class ResultsBenchmark {
+	private static final int PEOPLE = 10000;
+
+	@Param({ "CATEGORICAL", "ORDINAL", "PREFERENCED", "REFERENDUM", "SCHULZE", "RANKED_PAIRS", "IRV", "STV" })
+	private ElectionMethod method;
+
+	@Param({ "1000", "100000", "10000000" })
+	private int ballots;
+
+	private VotingPaper paper;
+
+	@Setup(Level.Trial)
+	public void setUp() {
+		BenchmarkData.usePeople(BenchmarkData.people(PEOPLE, PEOPLE));
+		paper = BenchmarkData.closedSession(BenchmarkData.paper(method, 5)).getPapers().get(0);
+		Random r = new Random(ballots);
+		for (int i = 0; i < ballots; i++)
+			paper.replayVote(paper.encode(BenchmarkData.randomVote(paper, r)), "V" + i);
+		paper.recount();
+	}
+
+	@Benchmark
+	public Results generateResults() {
+		return paper.generateResults();
+	}
+
+	@Benchmark
+	public Results getResults() {
+		return paper.getResults();
+	}
+
+	@Benchmark
+	public void recount() {
+		paper.recount();
+	}
+
+}
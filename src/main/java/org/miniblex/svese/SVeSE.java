@@ -5,22 +5,32 @@ import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.Optional;
 
+import org.miniblex.svese.model.PaperResultsRepository;
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.PersonRepository;
 import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
 import org.springframework.boot.context.event.ApplicationReadyEvent;
 import org.springframework.context.event.EventListener;
 
+import com.vaadin.flow.component.page.AppShellConfigurator;
+import com.vaadin.flow.component.page.Push;
+
 /**
  * Main class of the SVeSE system and application.
+ *
+ * Also configures the application shell: server push is enabled, so that views
+ * can be updated while they are open.
  */
+@Push
 @SpringBootApplication
-public class SVeSE {
+public class SVeSE implements AppShellConfigurator {
 	/** System name. */
 	public static String SYS_NAME = "SVeSE";
 	/** System description. */
@@ -34,6 +44,12 @@ public class SVeSE {
 	@Autowired
 	private PersonRepository personRepo;
 
+	@Autowired
+	private PaperResultsRepository resultsRepo;
+
+	@Value("${svese.journal.dir:}")
+	private String journalDir; // empty to disable session journaling
+
 	@EventListener(ApplicationReadyEvent.class)
 	private void postInit() {
 		context = this;
@@ -48,6 +64,12 @@ public class SVeSE {
 		} catch (IOException e) {
 			logger.warn("WARNING: proceeding without setting admin");
 		}
+		if (journalDir.isBlank()) {
+			logger.warn("WARNING: session journaling is disabled, votes will be lost on restart");
+		} else {
+			SessionRegistry.setJournalDirectory(Path.of(journalDir));
+			SessionRegistry.recover();
+		}
 	}
 
 	/**
@@ -70,6 +92,16 @@ public class SVeSE {
 		return context == null ? null : context.personRepo;
 	}
 
+	/**
+	 * Returns a valid {@link PaperResultsRepository} if the application has been
+	 * successfully initialized.
+	 *
+	 * @return a {@link PaperResultsRepository}.
+	 */
+	public static PaperResultsRepository getResultsRepo() {
+		return context == null ? null : context.resultsRepo;
+	}
+
 	/**
 	 * Constructs a new SVeSE. Should only be called by Spring.
 	 */
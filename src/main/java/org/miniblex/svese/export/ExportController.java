@@ -0,0 +1,78 @@
+package org.miniblex.svese.export;
+
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.Role;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
+import org.miniblex.svese.security.SecurityService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+/**
+ * Exports the results of a closed session as CSV ({@code /export/<session>.csv})
+ * or JSON ({@code /export/<session>.json}). The response is streamed by
+ * {@link ResultExporter} as it is written. Only the admin and the guarantors of
+ * the session may export it.
+ */
+@RestController
+@RequestMapping("/export")
+public class ExportController {
+	private static final MediaType TEXT_CSV = new MediaType("text", "csv");
+
+	@Autowired
+	private SecurityService sec;
+
+	@GetMapping("/{session}.csv")
+	public ResponseEntity<StreamingResponseBody> exportCsv(@PathVariable String session) {
+		Session s = getExportable(session);
+		return response(s, ".csv", TEXT_CSV).body(out -> ResultExporter.writeCsv(s, out));
+	}
+
+	@GetMapping("/{session}.json")
+	public ResponseEntity<StreamingResponseBody> exportJson(@PathVariable String session) {
+		Session s = getExportable(session);
+		return response(s, ".json", MediaType.APPLICATION_JSON).body(out -> ResultExporter.writeJson(s, out));
+	}
+
+	/**
+	 * Returns the session with the given name, checking that the current user may
+	 * export it and that it is not running. The checks are done here, before the
+	 * response is committed, so that they can be reported by status code.
+	 */
+	private Session getExportable(String name) {
+		Person p = sec.getAuthenticatedPerson();
+		if (p == null)
+			throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+		Session s = SessionRegistry.getSession(name);
+		if (s == null)
+			throw new ResponseStatusException(HttpStatus.NOT_FOUND, "no session \"" + name + "\"");
+		checkExportable(p, s);
+		return s;
+	}
+
+	/**
+	 * Checks that the given person may export the given session now: they must be
+	 * the admin or one of its guarantors, and the session must not be running.
+	 */
+	static void checkExportable(Person p, Session s) {
+		if (!Session.getRoles(p).contains(Role.ADMIN) && !s.isGuarantor(p))
+			throw new ResponseStatusException(HttpStatus.FORBIDDEN);
+		if (s.isRunning())
+			throw new ResponseStatusException(HttpStatus.CONFLICT, "session \"" + s.getName() + "\" is still running");
+	}
+
+	private static ResponseEntity.BodyBuilder response(Session s, String extension, MediaType type) {
+		return ResponseEntity.ok().contentType(type).header(HttpHeaders.CONTENT_DISPOSITION,
+				"attachment; filename=\"" + s.getName() + extension + "\"");
+	}
+
+}
@@ -0,0 +1,191 @@
+package org.miniblex.svese.export;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.StreamWriteFeature;
+
+import org.miniblex.svese.model.Choice;
+import org.miniblex.svese.model.ResultTree;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.VotingPaper;
+
+/**
+ * Writes the results of a closed {@link Session} as CSV or JSON. The output is
+ * streamed one paper at a time: only the {@link ResultTree} of the paper being
+ * written is held in memory, never the whole document. A NIO channel may be
+ * written to through {@link java.nio.channels.Channels#newOutputStream}.
+ *
+ * The given streams are flushed but not closed.
+ */
+public final class ResultExporter {
+	private static final JsonFactory json = JsonFactory.builder().disable(StreamWriteFeature.AUTO_CLOSE_TARGET).build();
+	private static final String CSV_HEADER = "session,paper,parent,parent_choice,title,method,seats,total_votes,turnout,choice,score,relative_score,elected";
+
+	/**
+	 * Writes the results of the given session as CSV, with a header line and one
+	 * line for every choice of every paper and subpaper. Papers are numbered in
+	 * the order they are written; a subpaper refers to the number of its parent
+	 * paper and to the choice it belongs to.
+	 *
+	 * @param s
+	 *                the session.
+	 * @param out
+	 *                the stream to write to, in UTF-8.
+	 * @throws IllegalStateException
+	 *                 if the session is still running.
+	 * @throws IOException
+	 *                 if the stream cannot be written.
+	 */
+	public static void writeCsv(Session s, OutputStream out) throws IOException {
+		checkNotRunning(s);
+		Writer w = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+		w.write(CSV_HEADER);
+		w.write("\r\n");
+		int[] next = { 0 }; // number of the next paper
+		for (VotingPaper vp : s.getPapers()) {
+			writeCsv(w, s, vp.getResultTree(), next, -1, null);
+			w.flush();
+		}
+	}
+
+	private static void writeCsv(Writer w, Session s, ResultTree t, int[] next, int parent, Choice parentChoice) throws IOException {
+		int paper = next[0]++;
+		VotingPaper vp = t.getPaper();
+		VotingPaper.Results res = t.getResults();
+		List<Choice> winners = res.getWinners();
+		for (VotingPaper.Results.Result r : res) {
+			csv(w, s.getName()).write(',');
+			w.write(Integer.toString(paper));
+			w.write(',');
+			if (parent >= 0)
+				w.write(Integer.toString(parent));
+			w.write(',');
+			if (parentChoice != null)
+				csv(w, parentChoice.getName());
+			w.write(',');
+			csv(w, vp.getTitle()).write(',');
+			w.write(vp.getMethod().name());
+			w.write(',');
+			w.write(Integer.toString(vp.getSeats()));
+			w.write(',');
+			w.write(Long.toString(res.getTotalVotes()));
+			w.write(',');
+			w.write(Double.toString(res.getTurnout()));
+			w.write(',');
+			csv(w, r.getChoice().getName()).write(',');
+			w.write(Long.toString(r.getScore()));
+			w.write(',');
+			w.write(Double.toString(r.getRelativeScore()));
+			w.write(',');
+			w.write(Boolean.toString(winners.contains(r.getChoice())));
+			w.write("\r\n");
+		}
+		for (Map.Entry<Choice, ResultTree> e : t.getSubtrees().entrySet())
+			writeCsv(w, s, e.getValue(), next, paper, e.getKey());
+	}
+
+	/**
+	 * Writes a CSV field, quoted only if it contains a separator, a quote or a line
+	 * break.
+	 */
+	private static Writer csv(Writer w, String field) throws IOException {
+		boolean quote = false;
+		for (int i = 0; i < field.length() && !quote; i++) {
+			char c = field.charAt(i);
+			quote = c == ',' || c == '"' || c == '\r' || c == '\n';
+		}
+		if (!quote) {
+			w.write(field);
+			return w;
+		}
+		w.write('"');
+		for (int i = 0; i < field.length(); i++) {
+			char c = field.charAt(i);
+			if (c == '"')
+				w.write('"');
+			w.write(c);
+		}
+		w.write('"');
+		return w;
+	}
+
+	/**
+	 * Writes the results of the given session as a JSON object holding the name of
+	 * the session and its papers. Every paper holds its turnout, its results in
+	 * descending order of score and its subpapers, by the choice they belong to.
+	 *
+	 * @param s
+	 *                the session.
+	 * @param out
+	 *                the stream to write to, in UTF-8.
+	 * @throws IllegalStateException
+	 *                 if the session is still running.
+	 * @throws IOException
+	 *                 if the stream cannot be written.
+	 */
+	public static void writeJson(Session s, OutputStream out) throws IOException {
+		checkNotRunning(s);
+		try (JsonGenerator g = json.createGenerator(out)) {
+			g.writeStartObject();
+			g.writeStringField("session", s.getName());
+			g.writeStringField("state", s.getState().name());
+			g.writeArrayFieldStart("papers");
+			for (VotingPaper vp : s.getPapers()) {
+				writeJson(g, vp.getResultTree());
+				g.flush();
+			}
+			g.writeEndArray();
+			g.writeEndObject();
+		}
+	}
+
+	private static void writeJson(JsonGenerator g, ResultTree t) throws IOException {
+		VotingPaper vp = t.getPaper();
+		VotingPaper.Results res = t.getResults();
+		List<Choice> winners = res.getWinners();
+		g.writeStartObject();
+		g.writeStringField("title", vp.getTitle());
+		g.writeStringField("method", vp.getMethod().name());
+		g.writeNumberField("seats", vp.getSeats());
+		g.writeNumberField("totalVotes", res.getTotalVotes());
+		g.writeNumberField("turnout", res.getTurnout());
+		g.writeArrayFieldStart("results");
+		for (VotingPaper.Results.Result r : res) {
+			g.writeStartObject();
+			g.writeStringField("choice", r.getChoice().getName());
+			g.writeNumberField("score", r.getScore());
+			g.writeNumberField("relativeScore", r.getRelativeScore());
+			g.writeBooleanField("elected", winners.contains(r.getChoice()));
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeArrayFieldStart("subpapers");
+		for (Map.Entry<Choice, ResultTree> e : t.getSubtrees().entrySet()) {
+			g.writeStartObject();
+			g.writeStringField("choice", e.getKey().getName());
+			g.writeFieldName("paper");
+			writeJson(g, e.getValue());
+			g.writeEndObject();
+		}
+		g.writeEndArray();
+		g.writeEndObject();
+	}
+
+	private static void checkNotRunning(Session s) {
+		if (s.isRunning())
+			throw new IllegalStateException("session \"" + s.getName() + "\" is still running");
+	}
+
+	private ResultExporter() {
+	}
+
+}
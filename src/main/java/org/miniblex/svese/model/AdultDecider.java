@@ -17,18 +17,27 @@
 
 package org.miniblex.svese.model;
 
+import java.time.LocalDate;
+
+import org.springframework.data.jpa.domain.Specification;
+
 /**
  * Implementation of {@link VoteDecider} which lets only adults vote. An adult
  * is defined by a {@link Person} with an age of at least a certain threshold.
  * This threshold is 18 if using the empty constructor, or the given number if
- * using the parameterized constructor.
+ * using the parameterized constructor. The adults are those born on or before
+ * a cutoff date, which lets the database count them by an index on the birth
+ * date. The cutoff is computed once per {@link DayClock} day, so that a check
+ * compares two epoch days.
  *
  * Immutable.
  */
 public class AdultDecider implements VoteDecider {
+	private static final long serialVersionUID = 1L;
 	private static int DEFAULT_AGE_THRESHOLD = 18;
 
 	private final int ageThreshold;
+	private transient volatile Cutoff cutoff; // of the last day a person was checked
 
 	/**
 	 * Constructs a new {@link AdultDecider} with 18 as age threshold.
@@ -53,9 +62,65 @@ public class AdultDecider implements VoteDecider {
 
 	@Override
 	public boolean canVote(Person p) {
-		if (p == null)
+		if (p == null || p.getBirthDate() == null)
 			return false;
-		return p.age() >= ageThreshold;
+		return p.getBirthDate().toEpochDay() <= cutoffEpochDay();
+	}
+
+	/**
+	 * Returns the cutoff of the current day, as an epoch day.
+	 */
+	private long cutoffEpochDay() {
+		long today = DayClock.epochDay();
+		Cutoff c = cutoff;
+		if (c == null || c.day != today)
+			cutoff = c = new Cutoff(today, cutoff(LocalDate.ofEpochDay(today)).toEpochDay());
+		return c.cutoff;
+	}
+
+	/**
+	 * Selects the people born on or before the cutoff of the current day.
+	 */
+	@Override
+	public Specification<Person> toSpecification() {
+		LocalDate cutoff = LocalDate.ofEpochDay(cutoffEpochDay());
+		return (root, query, cb) -> cb.and(cb.isNotNull(root.get("birthDate")), cb.lessThanOrEqualTo(root.get("birthDate"), cutoff));
+	}
+
+	@Override
+	public int getCost() {
+		return 2;
+	}
+
+	/**
+	 * Returns the latest birth date of the people who are adults on the given day.
+	 * {@link LocalDate#minusYears} moves February 29 to February 28, which agrees
+	 * with {@link Person#age}.
+	 *
+	 * @param today
+	 *                the day.
+	 * @return the cutoff date.
+	 */
+	LocalDate cutoff(LocalDate today) {
+		return today.minusYears(ageThreshold);
+	}
+
+	@Override
+	public int hashCode() {
+		return Integer.hashCode(ageThreshold);
+	}
+
+	/**
+	 * Two {@link AdultDecider}s are defined to be equals if they have the same age
+	 * threshold.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof AdultDecider))
+			return false;
+		return this.ageThreshold == ((AdultDecider) obj).ageThreshold;
 	}
 
 	@Override
@@ -63,4 +128,17 @@ public class AdultDecider implements VoteDecider {
 		return "AdultDecider[ageThreshold=" + ageThreshold + "]";
 	}
 
+	/**
+	 * The cutoff of a day, both as epoch days.
+	 */
+	private static final class Cutoff {
+		private final long day;
+		private final long cutoff;
+
+		private Cutoff(long day, long cutoff) {
+			this.day = day;
+			this.cutoff = cutoff;
+		}
+	}
+
 }
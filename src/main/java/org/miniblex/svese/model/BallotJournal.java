@@ -0,0 +1,441 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Append-only, on-disk journal of a {@link Session}: its definition, its state
+ * changes and every accepted ballot. Every record is written before the change
+ * it describes is applied in memory, so that a {@link Session} can be rebuilt
+ * by replaying the journal after a crash.
+ *
+ * A journal is a directory. The definition and state changes of the session,
+ * which are few, are appended to an event log and flushed one by one. Ballots
+ * are stored in a {@link BallotSegmentStore}, which flushes them with group
+ * commit.
+ *
+ * Every event is framed by its length and a CRC32 checksum, so that an event
+ * torn by a crash is detected and discarded during replay.
+ *
+ * The {@link VoteDecider}s of the papers are stored with Java serialization,
+ * and only the known deciders are accepted when they are read back.
+ *
+ * Note that ballot records associate a voter to their ballot: the journal must
+ * be protected at least as well as the database.
+ */
+final class BallotJournal implements Closeable {
+	private static final String DIR_PREFIX = "session-";
+	private static final String EVENT_LOG = "events.log";
+	private static final int FRAME_HEADER = 2 * Integer.BYTES; // length and checksum
+
+	// event types
+	private static final byte SESSION = 1;
+	private static final byte READY = 2;
+	private static final byte APPROVAL = 3;
+	private static final byte CLOSE = 4;
+
+	// the only classes which may be read with a decider: the deciders, and the
+	// immutable sets of their parameters
+	private static final ObjectInputFilter DECIDER_FILTER = ObjectInputFilter.Config.createFilter("maxdepth=32;"
+			+ Stream.of(VoteDecider.class, CompositeDecider.class, AndDecider.class, OrDecider.class, NotDecider.class, AdultDecider.class, BirthPlaceDecider.class, SsnListDecider.class)
+					.map(Class::getName).collect(Collectors.joining(";"))
+			+ ";java.util.CollSer;java.util.ImmutableCollections$Set12;java.util.ImmutableCollections$SetN;java.lang.Object;!*");
+
+	private final Path dir;
+	private final FileChannel events;
+	private BallotSegmentStore ballots; // opened once the session is known
+	private volatile boolean closed = false;
+
+	private static final Logger logger = LoggerFactory.getLogger(BallotJournal.class);
+
+	/**
+	 * Opens the event log of the given journal for appending, discarding anything
+	 * after the first {@code validLength} bytes.
+	 */
+	private BallotJournal(Path dir, long validLength) throws IOException {
+		this.dir = dir;
+		this.events = FileChannel.open(dir.resolve(EVENT_LOG), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+		events.truncate(validLength);
+		events.position(validLength);
+	}
+
+	/**
+	 * Creates a new, empty journal in the given directory. Journals are named
+	 * after their creation time, in milliseconds: a journal created in the same
+	 * millisecond as another one takes the next free millisecond.
+	 *
+	 * @param dir
+	 *                the directory of the journals. Created if it does not exist.
+	 * @return the new journal.
+	 * @throws IOException
+	 *                 if the journal cannot be created.
+	 */
+	static BallotJournal create(Path dir) throws IOException {
+		Files.createDirectories(dir);
+		for (long t = System.currentTimeMillis();; t++) {
+			try {
+				return new BallotJournal(Files.createDirectory(dir.resolve(DIR_PREFIX + t)), 0);
+			} catch (FileAlreadyExistsException e) {
+				// taken by another journal, try the next one
+			}
+		}
+	}
+
+	/**
+	 * Returns the most recent journal in the given directory, or {@code null} if
+	 * there is none.
+	 *
+	 * @param dir
+	 *                the directory of the journals.
+	 * @return the path of the latest journal, or {@code null}.
+	 * @throws IOException
+	 *                 if the directory cannot be listed.
+	 */
+	static Path latest(Path dir) throws IOException {
+		if (!Files.isDirectory(dir))
+			return null;
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> f.getFileName().toString().startsWith(DIR_PREFIX) && Files.isRegularFile(f.resolve(EVENT_LOG))).max(Path::compareTo).orElse(null);
+		}
+	}
+
+	/**
+	 * Returns the id of this journal, unique among the journals in the same
+	 * directory of journals: the name of its session and of its directory.
+	 */
+	String getId() {
+		return dir.getParent().getFileName() + "/" + dir.getFileName();
+	}
+
+	/**
+	 * Appends the given payload to the event log and flushes it.
+	 *
+	 * @throws UncheckedIOException
+	 *                 if the event could not be written.
+	 * @throws IllegalStateException
+	 *                 if the journal is closed.
+	 */
+	private synchronized void append(byte[] payload) {
+		if (closed)
+			throw new IllegalStateException("the journal " + dir + " is closed");
+		CRC32 crc = new CRC32();
+		crc.update(payload);
+		ByteBuffer buf = ByteBuffer.allocate(FRAME_HEADER + payload.length);
+		buf.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+		try {
+			while (buf.hasRemaining())
+				events.write(buf);
+			events.force(false);
+		} catch (IOException e) {
+			throw new UncheckedIOException("cannot write to the journal " + dir, e);
+		}
+	}
+
+	/**
+	 * Waits for the pending ballots to be written, then closes the journal.
+	 */
+	@Override
+	public synchronized void close() throws IOException {
+		if (closed)
+			return;
+		closed = true;
+		if (ballots != null)
+			ballots.close();
+		events.close();
+	}
+
+	/**
+	 * Closes this journal and deletes it, with its ballots.
+	 *
+	 * @throws IOException
+	 *                 if the journal cannot be deleted.
+	 */
+	synchronized void delete() throws IOException {
+		close();
+		try (Stream<Path> files = Files.list(dir)) {
+			for (Path f : (Iterable<Path>) files::iterator)
+				Files.delete(f);
+		}
+		Files.delete(dir);
+	}
+
+	/**
+	 * Logs the definition of the given new session, and prepares the journal to
+	 * store its ballots.
+	 *
+	 * @throws UncheckedIOException
+	 *                 if the session cannot be logged.
+	 */
+	void logSession(Session s, Session.SessionParameters params, List<Person> guarantors) {
+		try {
+			ballots = BallotSegmentStore.open(dir, s);
+		} catch (IOException e) {
+			throw new UncheckedIOException("cannot open the ballot store of " + dir, e);
+		}
+		append(record(SESSION, out -> {
+			out.writeUTF(params.getStart().toString());
+			out.writeUTF(params.getEnd().toString());
+			out.writeInt(guarantors.size());
+			for (Person g : guarantors)
+				out.writeUTF(g.getSsn());
+			out.writeInt(params.getPaperList().size());
+			for (VotingPaper p : params.getPaperList())
+				writePaper(out, p);
+		}));
+	}
+
+	/**
+	 * Logs that the session has been set ready.
+	 */
+	void logReady() {
+		append(record(READY, out -> {
+		}));
+	}
+
+	/**
+	 * Logs the approval of the session by the given guarantor.
+	 */
+	void logApproval(Person guarantor) {
+		append(record(APPROVAL, out -> out.writeUTF(guarantor.getSsn())));
+	}
+
+	/**
+	 * Logs the manual closing of the session.
+	 */
+	void logClose() {
+		append(record(CLOSE, out -> {
+		}));
+	}
+
+	/**
+	 * Logs the ballot of a voter, given as the indexes of the chosen
+	 * {@link Choice}s in each of the papers with the given ids (see
+	 * {@link VotingPaper#encode}). Returns when the ballot is durable.
+	 */
+	void logBallot(Person voter, int[] paperIds, int[][] choices) {
+		ballots.append(paperIds, voter.getSsn(), choices);
+	}
+
+	private interface RecordWriter {
+		void write(DataOutputStream out) throws IOException;
+	}
+
+	private static byte[] record(byte type, RecordWriter w) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (DataOutputStream out = new DataOutputStream(bytes)) {
+			out.writeByte(type);
+			w.write(out);
+		} catch (IOException e) {
+			throw new UncheckedIOException(e);
+		}
+		return bytes.toByteArray();
+	}
+
+	private static void writePaper(DataOutputStream out, VotingPaper p) throws IOException {
+		out.writeUTF(p.getTitle());
+		out.writeUTF(p.getMethod().name());
+		if (p.getMethod() == ElectionMethod.STV) // added with STV, so that older journals stay readable
+			out.writeInt(p.getSeats());
+		if (p.getDecider() == null) {
+			out.writeInt(-1);
+		} else {
+			ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+			try (ObjectOutputStream obj = new ObjectOutputStream(bytes)) {
+				obj.writeObject(p.getDecider());
+			}
+			out.writeInt(bytes.size());
+			bytes.writeTo(out);
+		}
+		out.writeInt(p.getChoices().size());
+		for (Choice c : p) {
+			out.writeUTF(c.getName());
+			VotingPaper sub = p.getSubPaper(c);
+			out.writeBoolean(sub != null);
+			if (sub != null)
+				writePaper(out, sub);
+		}
+	}
+
+	private static VotingPaper readPaper(DataInputStream in) throws IOException {
+		String title = in.readUTF();
+		ElectionMethod method = ElectionMethod.valueOf(in.readUTF());
+		int seats = method == ElectionMethod.STV ? in.readInt() : 1;
+		VoteDecider decider = null;
+		int deciderLength = in.readInt();
+		if (deciderLength >= 0) {
+			try (ObjectInputStream obj = new ObjectInputStream(new ByteArrayInputStream(in.readNBytes(deciderLength)))) {
+				obj.setObjectInputFilter(DECIDER_FILTER);
+				decider = (VoteDecider) obj.readObject();
+			} catch (ClassNotFoundException e) {
+				throw new IOException("unknown decider class", e);
+			}
+		}
+		int n = in.readInt();
+		Map<Choice, VotingPaper> choices = new LinkedHashMap<>(n);
+		for (int i = 0; i < n; i++) {
+			Choice c = new Choice(in.readUTF());
+			choices.put(c, in.readBoolean() ? readPaper(in) : null);
+		}
+		return new VotingPaper(title, choices, method, decider, seats);
+	}
+
+	/**
+	 * Rebuilds the {@link Session} logged in the given journal by replaying its
+	 * events and its ballots, then reopens the journal for appending and attaches
+	 * it to the session. A torn event at the end of the event log is discarded.
+	 * The events only restore the state of the session: the transitions due since
+	 * then are fired, and the next one scheduled, once the ballots are loaded.
+	 *
+	 * @param dir
+	 *                the journal.
+	 * @param name
+	 *                the name of the session.
+	 * @param people
+	 *                finds the {@link Person} with the given SSN, or returns
+	 *                {@code null}.
+	 * @return the rebuilt session, or {@code null} if the journal holds no session.
+	 * @throws IOException
+	 *                 if the journal cannot be read or is corrupted.
+	 */
+	static Session replay(Path dir, String name, Function<String, Person> people) throws IOException {
+		Path file = dir.resolve(EVENT_LOG);
+		Session s = null;
+		long valid = 0;
+		try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+			ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER);
+			CRC32 crc = new CRC32();
+			while (true) {
+				header.clear();
+				if (readFully(ch, header) < FRAME_HEADER)
+					break;
+				header.flip();
+				int length = header.getInt();
+				int checksum = header.getInt();
+				if (length < 0 || length > ch.size() - ch.position())
+					break;
+				ByteBuffer payload = ByteBuffer.allocate(length);
+				readFully(ch, payload);
+				crc.reset();
+				crc.update(payload.array());
+				if ((int) crc.getValue() != checksum)
+					break;
+				DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload.array()));
+				byte type = in.readByte();
+				if (s == null && type != SESSION)
+					throw new IOException("journal " + dir + " does not start with a session");
+				switch (type) {
+				case SESSION:
+					s = readSession(in, name, people);
+					break;
+				case READY:
+					s.restoreState(SessionState.READY);
+					break;
+				case APPROVAL:
+					s.restoreApproval(findPerson(people, in.readUTF()));
+					break;
+				case CLOSE:
+					s.restoreState(SessionState.CLOSED);
+					break;
+				default:
+					throw new IOException("unknown event type " + type + " in journal " + dir);
+				}
+				valid = ch.position();
+			}
+			if (valid < ch.size())
+				logger.warn("Discarding " + (ch.size() - valid) + " bytes of torn events at the end of " + file);
+		}
+		if (s == null)
+			return null;
+		long start = System.nanoTime();
+		long n = BallotSegmentStore.replay(dir, s);
+		for (int i = 0; i < s.getPaperCount(); i++)
+			s.getPaper(i).recount();
+		logger.info("Replayed " + n + " ballots from " + dir + " in " + (System.nanoTime() - start) / 1000000 + " ms");
+		BallotJournal journal = new BallotJournal(dir, valid);
+		journal.ballots = BallotSegmentStore.open(dir, s);
+		s.attachJournal(journal);
+		s.resume();
+		return s;
+	}
+
+	private static Session readSession(DataInputStream in, String name, Function<String, Person> people) throws IOException {
+		Session.SessionParameters params = new Session.SessionParameters();
+		params.setStart(LocalDateTime.parse(in.readUTF()));
+		params.setEnd(LocalDateTime.parse(in.readUTF()));
+		int nGuarantors = in.readInt();
+		List<Person> guarantors = new ArrayList<>(nGuarantors);
+		for (int i = 0; i < nGuarantors; i++)
+			guarantors.add(findPerson(people, in.readUTF()));
+		int nPapers = in.readInt();
+		for (int i = 0; i < nPapers; i++)
+			params.addPaper(readPaper(in));
+		return new Session(name, params, guarantors);
+	}
+
+	private static Person findPerson(Function<String, Person> people, String ssn) throws IOException {
+		Person p = people.apply(ssn);
+		if (p == null)
+			throw new IOException("person with SSN " + ssn + " in the journal does not exist");
+		return p;
+	}
+
+	private static int readFully(FileChannel ch, ByteBuffer buf) throws IOException {
+		int read = 0;
+		while (buf.hasRemaining()) {
+			int n = ch.read(buf);
+			if (n < 0)
+				break;
+			read += n;
+		}
+		return read;
+	}
+
+	@Override
+	public String toString() {
+		return "BallotJournal[" + dir + "]";
+	}
+
+}
@@ -0,0 +1,486 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Store of the ballots of a {@link Session}, made of memory-mapped segment
+ * files of fixed-size records. A record holds the id of the paper, the SSN of
+ * the voter and the ballot as choice indexes (see {@link VotingPaper#encode}).
+ * The size of a record depends on the largest ballot of the session, so that
+ * the position of every record is known in advance: appending threads reserve
+ * their slots with a single atomic operation and write their records
+ * concurrently. When a segment is full, a new one is created and mapped.
+ *
+ * The ballots of a voter for several papers are appended as a group of
+ * consecutive records in the same segment. Each record holds its index in the
+ * group and the size of the group, and a group is replayed only if all its
+ * records are complete.
+ *
+ * Records are made durable with group commit: after writing its record, each
+ * appending thread waits for a single flusher thread, which forces to disk the
+ * written range of every segment touched by all the records queued so far.
+ * If they cannot be flushed, the records of the group are zeroed before the
+ * failure is reported, so that a ballot which was not accepted is not replayed.
+ *
+ * Every record ends with a CRC32 checksum: slots which were reserved but not
+ * completely written before a crash are skipped on replay.
+ */
+final class BallotSegmentStore implements Closeable {
+	private static final String FILE_PREFIX = "ballots-";
+	private static final String FILE_SUFFIX = ".seg";
+	private static final int SEGMENT_SIZE = 64 << 20;
+	private static final int REPLAY_RANGE = 1 << 16; // records replayed by a single task
+	static final int MAX_SSN_BYTES = 64;
+
+	private static final byte BALLOT = 1;
+
+	// record layout
+	private static final int PAPER_OFFSET = 1;
+	private static final int GROUP_INDEX_OFFSET = PAPER_OFFSET + Short.BYTES;
+	private static final int GROUP_SIZE_OFFSET = GROUP_INDEX_OFFSET + Short.BYTES;
+	private static final int SSN_OFFSET = GROUP_SIZE_OFFSET + Short.BYTES;
+	private static final int BALLOT_OFFSET = SSN_OFFSET + 1 + MAX_SSN_BYTES;
+
+	private final Path dir;
+	private final Layout layout;
+	private final int recordSize; // of the layout
+	private final int perSegment; // records per segment
+	private final AtomicLong next; // next free slot
+	private final Map<Integer, MappedByteBuffer> segments = new ConcurrentHashMap<>();
+	private final BlockingQueue<PendingFlush> pending = new LinkedBlockingQueue<>();
+	private final Thread flusher;
+	private volatile Forcer forcer = MappedByteBuffer::force;
+	private volatile boolean closed = false;
+
+	private static final Logger logger = LoggerFactory.getLogger(BallotSegmentStore.class);
+
+	/**
+	 * A written group of records waiting to be flushed.
+	 */
+	private static class PendingFlush {
+		private final int segment;
+		private final int offset;
+		private final int length;
+		private final CompletableFuture<Void> done = new CompletableFuture<>();
+
+		private PendingFlush(int segment, int offset, int length) {
+			this.segment = segment;
+			this.offset = offset;
+			this.length = length;
+		}
+	}
+
+	private static final PendingFlush SHUTDOWN = new PendingFlush(-1, -1, 0);
+
+	/**
+	 * The layout of the records of a session, which depends on its largest
+	 * ballot.
+	 */
+	private static final class Layout {
+		private final int crcOffset;
+		private final int recordSize;
+
+		private Layout(Session s) {
+			this.crcOffset = BALLOT_OFFSET + Short.BYTES * (1 + maxBallot(s));
+			this.recordSize = (crcOffset + Integer.BYTES + 7) & ~7;
+		}
+
+		/**
+		 * Returns the maximum number of choice indexes in a ballot of the given
+		 * session.
+		 */
+		private static int maxBallot(Session s) {
+			int max = 1;
+			for (int id = 0; id < s.getPaperCount(); id++) {
+				VotingPaper p = s.getPaper(id);
+				if (p.getMethod().isOrdinal())
+					max = Math.max(max, p.getChoices().size());
+			}
+			return max;
+		}
+	}
+
+	/**
+	 * Forces a range of a segment to disk.
+	 */
+	@FunctionalInterface
+	interface Forcer {
+		/**
+		 * @throws UncheckedIOException
+		 *                 if the range cannot be forced.
+		 */
+		void force(MappedByteBuffer segment, int offset, int length);
+	}
+
+	/**
+	 * Computes the record layout for the given session. Should only be called by
+	 * {@code open}.
+	 */
+	private BallotSegmentStore(Path dir, Session s, int segmentSize) throws IOException {
+		this.dir = dir;
+		this.layout = new Layout(s);
+		this.recordSize = layout.recordSize;
+		this.perSegment = segmentSize / recordSize;
+		if (perSegment < s.getPaperCount()) // a ballot for every paper fits in a segment
+			throw new IllegalArgumentException("segments of " + segmentSize + " bytes are too small for records of " + recordSize + " bytes");
+		this.next = new AtomicLong((long) segmentFiles(dir).size() * perSegment);
+		this.flusher = new Thread(this::flushLoop, "svese-ballot-flusher");
+		flusher.setDaemon(true);
+	}
+
+	/**
+	 * Opens the store in the given directory for the given session. New records
+	 * are appended to a new segment, after any existing one.
+	 *
+	 * @param dir
+	 *                the directory of the segments.
+	 * @param s
+	 *                the session whose ballots are stored.
+	 * @return the opened store.
+	 * @throws IOException
+	 *                 if the directory cannot be read.
+	 */
+	static BallotSegmentStore open(Path dir, Session s) throws IOException {
+		return open(dir, s, SEGMENT_SIZE);
+	}
+
+	/**
+	 * Opens the store with segments of the given size, in bytes.
+	 *
+	 * @see #open(Path, Session)
+	 */
+	static BallotSegmentStore open(Path dir, Session s, int segmentSize) throws IOException {
+		BallotSegmentStore store = new BallotSegmentStore(dir, s, segmentSize);
+		store.flusher.start();
+		return store;
+	}
+
+	/**
+	 * Replaces the way segments are forced to disk, e.g. to simulate failures.
+	 */
+	void setForcer(Forcer f) {
+		forcer = Objects.requireNonNull(f);
+	}
+
+	/**
+	 * Returns the size of a record, in bytes.
+	 */
+	int getRecordSize() {
+		return recordSize;
+	}
+
+	private static List<Path> segmentFiles(Path dir) throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> {
+				String name = f.getFileName().toString();
+				return name.startsWith(FILE_PREFIX) && name.endsWith(FILE_SUFFIX);
+			}).sorted().toList();
+		}
+	}
+
+	/**
+	 * Returns the given segment, creating and mapping it if needed.
+	 */
+	private MappedByteBuffer segment(int n) {
+		MappedByteBuffer seg = segments.get(n);
+		if (seg != null)
+			return seg;
+		synchronized (segments) {
+			seg = segments.get(n);
+			if (seg == null) {
+				Path file = dir.resolve(String.format("%s%06d%s", FILE_PREFIX, n, FILE_SUFFIX));
+				try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+					seg = ch.map(FileChannel.MapMode.READ_WRITE, 0, (long) perSegment * recordSize);
+				} catch (IOException e) {
+					throw new UncheckedIOException("cannot create the ballot segment " + file, e);
+				}
+				segments.put(n, seg);
+				logger.info("Created ballot segment " + file);
+			}
+			return seg;
+		}
+	}
+
+	/**
+	 * Appends the ballots of a voter as a single group and waits until they are
+	 * durable.
+	 *
+	 * @param paperIds
+	 *                the ids of the papers in the session.
+	 * @param ssn
+	 *                the SSN of the voter.
+	 * @param ballots
+	 *                the ballot for each paper, as choice indexes.
+	 * @throws IllegalArgumentException
+	 *                 if the SSN is longer than {@code MAX_SSN_BYTES} bytes.
+	 * @throws UncheckedIOException
+	 *                 if the ballots cannot be written.
+	 * @throws IllegalStateException
+	 *                 if the store is closed.
+	 */
+	void append(int[] paperIds, String ssn, int[][] ballots) {
+		if (closed)
+			throw new IllegalStateException("the ballot store " + dir + " is closed");
+		int size = paperIds.length;
+		byte[][] records = new byte[size][];
+		for (int i = 0; i < size; i++)
+			records[i] = encode(paperIds[i], i, size, ssn, ballots[i]);
+		long slot = reserve(size);
+		int n = (int) (slot / perSegment);
+		int offset = (int) (slot % perSegment) * recordSize;
+		MappedByteBuffer seg = segment(n);
+		for (int i = 0; i < size; i++)
+			seg.put(offset + i * recordSize, records[i]);
+		PendingFlush f = new PendingFlush(n, offset, size * recordSize);
+		pending.add(f);
+		try {
+			f.done.join();
+		} catch (CompletionException e) {
+			invalidate(seg, offset, size * recordSize);
+			if (e.getCause() instanceof IOException)
+				throw new UncheckedIOException("cannot flush the ballot store " + dir, (IOException) e.getCause());
+			throw e;
+		}
+	}
+
+	/**
+	 * Zeroes the given range of records, which was written but not flushed, so
+	 * that it is not replayed. The records are zeroed in the mapping, hence the
+	 * page cache, even if they cannot be forced.
+	 */
+	private void invalidate(MappedByteBuffer seg, int offset, int length) {
+		seg.put(offset, new byte[length]);
+		try {
+			forcer.force(seg, offset, length);
+		} catch (UncheckedIOException e) {
+			logger.error("Cannot flush the invalidated records at " + offset + " in the ballot store " + dir, e);
+		}
+	}
+
+	/**
+	 * Reserves the given number of consecutive slots in the same segment,
+	 * skipping the last slots of the current segment if they are not enough.
+	 *
+	 * @return the first reserved slot.
+	 */
+	private long reserve(int size) {
+		while (true) {
+			long current = next.get();
+			long slot = current;
+			if (slot % perSegment + size > perSegment)
+				slot += perSegment - slot % perSegment;
+			if (next.compareAndSet(current, slot + size))
+				return slot;
+		}
+	}
+
+	private byte[] encode(int paperId, int groupIndex, int groupSize, String ssn, int[] ballot) {
+		byte[] ssnBytes = ssn.getBytes(StandardCharsets.UTF_8);
+		if (ssnBytes.length > MAX_SSN_BYTES)
+			throw new IllegalArgumentException("SSN " + ssn + " is too long for the ballot store");
+		ByteBuffer buf = ByteBuffer.allocate(recordSize);
+		buf.put(BALLOT).putShort((short) paperId);
+		buf.putShort((short) groupIndex).putShort((short) groupSize);
+		buf.put((byte) ssnBytes.length).put(ssnBytes);
+		buf.position(BALLOT_OFFSET);
+		buf.putShort((short) ballot.length);
+		for (int c : ballot)
+			buf.putShort((short) c);
+		CRC32 crc = new CRC32();
+		crc.update(buf.array(), 0, layout.crcOffset);
+		buf.putInt(layout.crcOffset, (int) crc.getValue());
+		return buf.array();
+	}
+
+	/**
+	 * Body of the flusher thread: forces to disk the written range of each segment
+	 * touched by the queued records, then releases their appending threads.
+	 */
+	private void flushLoop() {
+		List<PendingFlush> batch = new ArrayList<>();
+		Map<Integer, int[]> ranges = new HashMap<>();
+		boolean shutdown = false;
+		while (!shutdown) {
+			try {
+				batch.add(pending.take());
+			} catch (InterruptedException e) {
+				break;
+			}
+			pending.drainTo(batch);
+			shutdown = batch.remove(SHUTDOWN);
+			for (PendingFlush f : batch) {
+				int[] r = ranges.computeIfAbsent(f.segment, k -> new int[] { Integer.MAX_VALUE, 0 });
+				r[0] = Math.min(r[0], f.offset);
+				r[1] = Math.max(r[1], f.offset + f.length);
+			}
+			try {
+				for (Map.Entry<Integer, int[]> r : ranges.entrySet())
+					forcer.force(segments.get(r.getKey()), r.getValue()[0], r.getValue()[1] - r.getValue()[0]);
+				for (PendingFlush f : batch)
+					f.done.complete(null);
+			} catch (UncheckedIOException e) {
+				logger.error("Cannot flush the ballot store " + dir, e);
+				for (PendingFlush f : batch)
+					f.done.completeExceptionally(e.getCause());
+			}
+			batch.clear();
+			ranges.clear();
+		}
+		for (PendingFlush f : pending)
+			f.done.completeExceptionally(new IOException("the ballot store is closed"));
+	}
+
+	/**
+	 * Waits for the pending records to be flushed, then closes the store.
+	 */
+	@Override
+	public void close() {
+		if (closed)
+			return;
+		closed = true;
+		pending.add(SHUTDOWN);
+		try {
+			flusher.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+		segments.clear();
+	}
+
+	/**
+	 * Replays every ballot stored in the given directory into the papers of the
+	 * given session. Segments are mapped read-only and split in ranges of records
+	 * which are replayed in parallel.
+	 *
+	 * @return the number of replayed ballots.
+	 * @throws IOException
+	 *                 if a segment cannot be read.
+	 */
+	static long replay(Path dir, Session s) throws IOException {
+		Layout layout = new Layout(s);
+		LongAdder ballots = new LongAdder();
+		LongAdder skipped = new LongAdder();
+		for (Path file : segmentFiles(dir)) {
+			try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+				MappedByteBuffer seg = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+				int records = seg.limit() / layout.recordSize;
+				IntStream.range(0, (records + REPLAY_RANGE - 1) / REPLAY_RANGE).parallel().forEach(r -> {
+					int from = r * REPLAY_RANGE;
+					replayRange(layout, seg, records, from, Math.min(records, from + REPLAY_RANGE), s, ballots, skipped);
+				});
+			}
+		}
+		if (skipped.sum() > 0)
+			logger.warn("Skipped " + skipped.sum() + " incomplete ballot records in " + dir);
+		return ballots.sum();
+	}
+
+	/**
+	 * Replays the groups of records which start in the given range of slots. The
+	 * last group may end after the range.
+	 */
+	private static void replayRange(Layout layout, ByteBuffer seg, int records, int from, int to, Session s, LongAdder ballots, LongAdder skipped) {
+		CRC32 crc = new CRC32();
+		byte[] record = new byte[layout.recordSize];
+		for (int slot = from; slot < to; slot++) {
+			if (!read(layout, seg, slot, record, crc)) {
+				if (ByteBuffer.wrap(record).getInt(layout.crcOffset) != 0)
+					skipped.increment();
+				continue;
+			}
+			ByteBuffer buf = ByteBuffer.wrap(record);
+			if (buf.getShort(GROUP_INDEX_OFFSET) != 0)
+				continue; // replayed with the first record of its group
+			int size = Short.toUnsignedInt(buf.getShort(GROUP_SIZE_OFFSET));
+			byte[][] group = new byte[size][];
+			group[0] = record.clone();
+			for (int i = 1; i < size; i++) {
+				group[i] = new byte[layout.recordSize];
+				if (slot + i >= records || !read(layout, seg, slot + i, group[i], crc) || ByteBuffer.wrap(group[i]).getShort(GROUP_INDEX_OFFSET) != i) {
+					group = null;
+					skipped.add(i);
+					break;
+				}
+			}
+			if (group == null)
+				continue;
+			for (byte[] r : group)
+				replayRecord(r, s);
+			ballots.add(size);
+		}
+	}
+
+	/**
+	 * Reads the record in the given slot.
+	 *
+	 * @return {@code true} if the record is complete.
+	 */
+	private static boolean read(Layout layout, ByteBuffer seg, int slot, byte[] record, CRC32 crc) {
+		seg.get(slot * layout.recordSize, record);
+		if (record[0] != BALLOT)
+			return false;
+		crc.reset();
+		crc.update(record, 0, layout.crcOffset);
+		return (int) crc.getValue() == ByteBuffer.wrap(record).getInt(layout.crcOffset);
+	}
+
+	private static void replayRecord(byte[] record, Session s) {
+		ByteBuffer buf = ByteBuffer.wrap(record);
+		int paperId = Short.toUnsignedInt(buf.getShort(PAPER_OFFSET));
+		String ssn = new String(record, SSN_OFFSET + 1, Byte.toUnsignedInt(record[SSN_OFFSET]), StandardCharsets.UTF_8);
+		int[] ballot = new int[Short.toUnsignedInt(buf.getShort(BALLOT_OFFSET))];
+		for (int i = 0; i < ballot.length; i++)
+			ballot[i] = Short.toUnsignedInt(buf.getShort(BALLOT_OFFSET + Short.BYTES * (i + 1)));
+		s.getPaper(paperId).replayVote(ballot, ssn);
+	}
+
+	@Override
+	public String toString() {
+		return "BallotSegmentStore[" + dir + ", recordSize=" + recordSize + ", next=" + next + "]";
+	}
+
+}
@@ -0,0 +1,91 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Implementation of {@link VoteDecider} which lets vote the people born in one
+ * of the given places, e.g. the municipalities of a district.
+ *
+ * Immutable.
+ */
+public class BirthPlaceDecider implements VoteDecider {
+	private static final long serialVersionUID = 1L;
+
+	private final Set<String> places;
+
+	/**
+	 * Constructs a new {@link BirthPlaceDecider} of the given places.
+	 *
+	 * @param places
+	 *                the birth places of the people who can vote, at least one.
+	 * @throws IllegalArgumentException
+	 *                 if there is no place.
+	 */
+	public BirthPlaceDecider(Collection<String> places) {
+		if (places.isEmpty())
+			throw new IllegalArgumentException("cannot use an empty list of birth places");
+		this.places = Set.copyOf(places);
+	}
+
+	@Override
+	public boolean canVote(Person p) {
+		if (p == null || p.getBirthPlace() == null)
+			return false;
+		return places.contains(p.getBirthPlace());
+	}
+
+	@Override
+	public Specification<Person> toSpecification() {
+		Set<String> in = places;
+		return (root, query, cb) -> cb.and(cb.isNotNull(root.get("birthPlace")), root.get("birthPlace").in(in));
+	}
+
+	@Override
+	public int getCost() {
+		return 4;
+	}
+
+	@Override
+	public int hashCode() {
+		return places.hashCode();
+	}
+
+	/**
+	 * Two {@link BirthPlaceDecider}s are defined to be equals if they have the same
+	 * places.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof BirthPlaceDecider))
+			return false;
+		return places.equals(((BirthPlaceDecider) obj).places);
+	}
+
+	@Override
+	public String toString() {
+		return "BirthPlaceDecider[places=" + places + "]";
+	}
+
+}
@@ -23,8 +23,6 @@ import java.util.Objects;
  * Implementation of {@link Vote} for a categorical election. In a categorical
  * election, only one choice is chosen, which means (only) its score is
  * incremented.
- *
- * TODO[?]:possibly add a method to retrieve the choice
  */
 public class CategoricalVote implements Vote {
 	private final Choice chosen;
@@ -39,6 +37,15 @@ public class CategoricalVote implements Vote {
 		this.chosen = Objects.requireNonNull(chosen);
 	}
 
+	/**
+	 * Returns the selected {@link Choice}.
+	 *
+	 * @return the chosen choice.
+	 */
+	public Choice getChoice() {
+		return chosen;
+	}
+
 	/**
 	 * Returns 1 for the selected {@link Choice}, else 0.
 	 */
@@ -0,0 +1,367 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BinaryOperator;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Compact storage of the ballots of a {@link VotingPaper}, encoded as the
+ * indexes of the chosen {@link Choice}s (see {@link VotingPaper#encode}).
+ *
+ * Ballots are packed in fixed-size slots of chunked byte arrays, whose size
+ * depends on the election method and on the number of choices of the paper:
+ * <ul>
+ * <li>a single choice takes one byte, or two with more than 256 choices;</li>
+ * <li>an order of preference among up to {@code MAX_PACKED_CHOICES} choices is
+ * packed in a {@code long}, holding the length of the order and the rank of its
+ * permutation (Lehmer code);</li>
+ * <li>an order of preference among more choices takes two bytes per
+ * choice.</li>
+ * </ul>
+ *
+ * Thread safe: ballots are appended without locking, by reserving a slot with
+ * an atomic increment, and are published by setting the ready bit of their
+ * slot once written. A lock is only taken when a new chunk is needed. Readers
+ * only read the ballots below the first slot which is not ready yet, waiting
+ * for the slots reserved before they started.
+ *
+ * The stored ballots are counted by {@code tally} and {@code reduce}, which
+ * split the chunks among the threads of a {@link ForkJoinPool}: every task
+ * counts the ballots of a range of chunks in its own counters, which are then
+ * merged.
+ */
+final class CompactBallots {
+	/** Maximum number of choices whose orders of preference are packed in a long. */
+	static final int MAX_PACKED_CHOICES = 19; // 19! < 2^57, the length takes the 5 bits above
+	private static final int RANK_BITS = 57;
+	private static final int CHUNK_BITS = 12; // ballots per chunk, as a power of 2
+	private static final int NO_CHOICE = 0xFFFF; // terminates short orders of preference
+	private static final int TALLY_CHUNKS = 4; // chunks tallied by a single task
+
+	private static final VarHandle SHORTS = MethodHandles.byteArrayViewVarHandle(short[].class, ByteOrder.nativeOrder());
+	private static final VarHandle LONGS = MethodHandles.byteArrayViewVarHandle(long[].class, ByteOrder.nativeOrder());
+	private static final VarHandle READY = MethodHandles.arrayElementVarHandle(long[].class);
+	private static final long[] FACTORIALS = new long[MAX_PACKED_CHOICES + 1];
+
+	static {
+		FACTORIALS[0] = 1;
+		for (int i = 1; i < FACTORIALS.length; i++)
+			FACTORIALS[i] = FACTORIALS[i - 1] * i;
+	}
+
+	private enum Format {
+		BYTE, SHORT, PACKED, PERMUTATION
+	}
+
+	private final int choices;
+	private final Format format;
+	private final int stride; // bytes per ballot
+	private final AtomicLong size = new AtomicLong(); // reserved slots
+	private final AtomicLong published = new AtomicLong(); // slots below are all written
+	private volatile long[][] ready = new long[0][]; // ready bits of the slots of every chunk, replaced before chunks
+	private volatile byte[][] chunks = new byte[0][]; // replaced, never modified, when a chunk is added
+
+	/**
+	 * Constructs an empty storage for the ballots of a paper with the given
+	 * method and number of choices.
+	 */
+	CompactBallots(ElectionMethod method, int choices) {
+		this.choices = choices;
+		if (method.isOrdinal()) {
+			format = choices <= MAX_PACKED_CHOICES ? Format.PACKED : Format.PERMUTATION;
+			stride = format == Format.PACKED ? Long.BYTES : Short.BYTES * choices;
+		} else {
+			format = choices <= 256 ? Format.BYTE : Format.SHORT;
+			stride = format == Format.BYTE ? 1 : Short.BYTES;
+		}
+	}
+
+	/**
+	 * Appends the given ballot.
+	 */
+	void add(int[] ballot) {
+		long slot = size.getAndIncrement();
+		byte[] chunk = chunk((int) (slot >>> CHUNK_BITS));
+		int offset = (int) (slot & ((1 << CHUNK_BITS) - 1)) * stride;
+		switch (format) {
+		case BYTE:
+			chunk[offset] = (byte) ballot[0];
+			break;
+		case SHORT:
+			SHORTS.set(chunk, offset, (short) ballot[0]);
+			break;
+		case PACKED:
+			LONGS.set(chunk, offset, pack(ballot, choices));
+			break;
+		case PERMUTATION:
+			for (int i = 0; i < choices; i++)
+				SHORTS.set(chunk, offset + Short.BYTES * i, (short) (i < ballot.length ? ballot[i] : NO_CHOICE));
+			break;
+		}
+		int i = (int) (slot & ((1 << CHUNK_BITS) - 1));
+		READY.getAndBitwiseOrRelease(ready[(int) (slot >>> CHUNK_BITS)], i >>> 6, 1L << i); // ready is replaced before chunks, so it has the chunk
+	}
+
+	/**
+	 * Returns the given chunk, allocating it if needed.
+	 */
+	private byte[] chunk(int n) {
+		byte[][] cs = chunks;
+		if (n < cs.length)
+			return cs[n];
+		synchronized (this) {
+			cs = chunks;
+			if (n >= cs.length) {
+				long[][] rs = Arrays.copyOf(ready, n + 1);
+				cs = Arrays.copyOf(cs, n + 1);
+				for (int i = chunks.length; i <= n; i++) {
+					rs[i] = new long[1 << (CHUNK_BITS - 6)];
+					cs[i] = new byte[stride << CHUNK_BITS];
+				}
+				ready = rs;
+				chunks = cs;
+			}
+			return cs[n];
+		}
+	}
+
+	/**
+	 * Returns the number of stored ballots.
+	 */
+	long size() {
+		return size.get();
+	}
+
+	/**
+	 * Performs the given action on every stored ballot, in order of insertion.
+	 * Waits for the ballots being added to be completely written.
+	 */
+	void forEach(Consumer<int[]> action) {
+		long n = awaitWritten();
+		byte[][] cs = chunks;
+		for (long slot = 0; slot < n; slot++)
+			action.accept(get(cs[(int) (slot >>> CHUNK_BITS)], (int) (slot & ((1 << CHUNK_BITS) - 1)) * stride));
+	}
+
+	/**
+	 * Returns the number of stored ballots, after waiting for the ballots being
+	 * added to be completely written: every slot below the returned number is
+	 * ready.
+	 */
+	private long awaitWritten() {
+		long n = size.get();
+		long slot = published.get();
+		long[][] rs = ready;
+		while (slot < n) {
+			int c = (int) (slot >>> CHUNK_BITS);
+			if (c >= rs.length) { // the chunk is being allocated
+				Thread.onSpinWait();
+				rs = ready;
+				continue;
+			}
+			int i = (int) (slot & ((1 << CHUNK_BITS) - 1));
+			long word = (long) READY.getAcquire(rs[c], i >>> 6);
+			if (word == -1L)
+				slot = (slot | 63) + 1;
+			else if ((word & (1L << i)) != 0)
+				slot++;
+			else
+				Thread.onSpinWait();
+		}
+		published.accumulateAndGet(n, Math::max);
+		return n;
+	}
+
+	/**
+	 * Sums the scores of the stored ballots in parallel on the given pool. A
+	 * categorical ballot gives one point to its choice; an order of preference of
+	 * length {@code n} gives {@code n-1} points to its first choice, {@code n-2}
+	 * to the second, et cetera, as {@link OrdinalVote} does. Waits for the
+	 * ballots being added to be completely written.
+	 *
+	 * @return the score of every choice, by choice index.
+	 */
+	long[] tally(ForkJoinPool pool) {
+		long n = awaitWritten();
+		return pool.invoke(new Reduce<>(chunks, 0, n, () -> new long[choices], this::score, CompactBallots::sum));
+	}
+
+	/**
+	 * Reduces the stored ballots in parallel on the given pool: the ballots of
+	 * every range of chunks are accumulated in a partial result, then the partial
+	 * results are combined. Waits for the ballots being added to be completely
+	 * written.
+	 *
+	 * @param identity
+	 *                returns a new, empty partial result.
+	 * @param accumulator
+	 *                adds a ballot to a partial result.
+	 * @param combiner
+	 *                combines two partial results, and returns the combination.
+	 *                May modify and return one of them.
+	 * @return the result.
+	 */
+	<R> R reduce(ForkJoinPool pool, Supplier<R> identity, BiConsumer<R, int[]> accumulator, BinaryOperator<R> combiner) {
+		long n = awaitWritten();
+		return pool.invoke(new Reduce<>(chunks, 0, n, identity, (r, chunk, offset) -> accumulator.accept(r, get(chunk, offset)), combiner));
+	}
+
+	/**
+	 * Adds the ballot in a slot of the given chunk to a partial result.
+	 */
+	@FunctionalInterface
+	private interface SlotAccumulator<R> {
+		void accept(R partial, byte[] chunk, int offset);
+	}
+
+	/**
+	 * Reduces the ballots in a range of slots, splitting it at chunk boundaries
+	 * until it spans at most {@code TALLY_CHUNKS} chunks.
+	 */
+	private final class Reduce<R> extends RecursiveTask<R> {
+		private static final long serialVersionUID = 1L;
+		private final byte[][] cs;
+		private final long from;
+		private final long to;
+		private final Supplier<R> identity;
+		private final SlotAccumulator<R> accumulator;
+		private final BinaryOperator<R> combiner;
+
+		Reduce(byte[][] cs, long from, long to, Supplier<R> identity, SlotAccumulator<R> accumulator, BinaryOperator<R> combiner) {
+			this.cs = cs;
+			this.from = from;
+			this.to = to;
+			this.identity = identity;
+			this.accumulator = accumulator;
+			this.combiner = combiner;
+		}
+
+		@Override
+		protected R compute() {
+			if (to - from <= (long) TALLY_CHUNKS << CHUNK_BITS) {
+				R partial = identity.get();
+				for (long slot = from; slot < to; slot++)
+					accumulator.accept(partial, cs[(int) (slot >>> CHUNK_BITS)], (int) (slot & ((1 << CHUNK_BITS) - 1)) * stride);
+				return partial;
+			}
+			long mid = ((from + to) >>> 1) & -(1L << CHUNK_BITS); // from is aligned, so from < mid
+			Reduce<R> left = new Reduce<>(cs, from, mid, identity, accumulator, combiner);
+			left.fork();
+			R right = new Reduce<>(cs, mid, to, identity, accumulator, combiner).compute();
+			return combiner.apply(left.join(), right);
+		}
+	}
+
+	/**
+	 * Adds the scores of the ballot in the given slot to {@code scores}.
+	 */
+	private void score(long[] scores, byte[] chunk, int offset) {
+		switch (format) {
+		case BYTE:
+			scores[Byte.toUnsignedInt(chunk[offset])]++;
+			break;
+		case SHORT:
+			scores[Short.toUnsignedInt((short) SHORTS.get(chunk, offset))]++;
+			break;
+		default:
+			int[] order = get(chunk, offset);
+			for (int i = 0; i < order.length; i++)
+				scores[order[i]] += OrdinalVote.value(order.length, i);
+			break;
+		}
+	}
+
+	private static long[] sum(long[] a, long[] b) {
+		for (int i = 0; i < a.length; i++)
+			a[i] += b[i];
+		return a;
+	}
+
+	private int[] get(byte[] chunk, int offset) {
+		switch (format) {
+		case BYTE:
+			return new int[] { Byte.toUnsignedInt(chunk[offset]) };
+		case SHORT:
+			return new int[] { Short.toUnsignedInt((short) SHORTS.get(chunk, offset)) };
+		case PACKED:
+			return unpack((long) LONGS.get(chunk, offset), choices);
+		default:
+			int[] res = new int[choices];
+			int len = 0;
+			while (len < choices) {
+				int c = Short.toUnsignedInt((short) SHORTS.get(chunk, offset + Short.BYTES * len));
+				if (c == NO_CHOICE)
+					break;
+				res[len++] = c;
+			}
+			return len == choices ? res : Arrays.copyOf(res, len);
+		}
+	}
+
+	/**
+	 * Packs an order of preference among {@code n} choices in a long: the length
+	 * of the order in the top bits, and the Lehmer code of the permutation made of
+	 * the order followed by the remaining choices in ascending order.
+	 */
+	static long pack(int[] order, int n) {
+		long rank = 0;
+		int used = 0; // bitset of the choices already in the permutation
+		for (int i = 0; i < order.length; i++) {
+			int smaller = Integer.bitCount(~used & ((1 << order[i]) - 1)); // unused choices smaller than order[i]
+			rank += smaller * FACTORIALS[n - 1 - i];
+			used |= 1 << order[i];
+		}
+		return ((long) order.length << RANK_BITS) | rank;
+	}
+
+	/**
+	 * Unpacks an order of preference packed by {@code pack}.
+	 */
+	static int[] unpack(long packed, int n) {
+		int[] order = new int[(int) (packed >>> RANK_BITS)];
+		long rank = packed & ((1L << RANK_BITS) - 1);
+		int unused = (1 << n) - 1;
+		for (int i = 0; i < order.length; i++) {
+			long f = FACTORIALS[n - 1 - i];
+			int smaller = (int) (rank / f);
+			rank %= f;
+			int c = unused;
+			for (int j = 0; j < smaller; j++)
+				c &= c - 1; // drop the lowest unused choices
+			order[i] = Integer.numberOfTrailingZeros(c);
+			unused &= ~(1 << order[i]);
+		}
+		return order;
+	}
+
+	@Override
+	public String toString() {
+		return "CompactBallots[format=" + format + ", size=" + size() + "]";
+	}
+
+}
@@ -0,0 +1,97 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+
+/**
+ * Base of the {@link VoteDecider}s combining other deciders, its operands,
+ * which it evaluates in order of {@link VoteDecider#getCost cost}. Operands of
+ * the same class as the combination are replaced by their own operands, so
+ * that {@code a.and(b).and(c)} orders all three.
+ *
+ * Immutable.
+ */
+abstract class CompositeDecider implements VoteDecider {
+	private static final long serialVersionUID = 1L;
+
+	protected final VoteDecider[] operands; // by increasing cost, then in the given order
+
+	/**
+	 * Constructs a combination of the given deciders.
+	 *
+	 * @throws IllegalArgumentException
+	 *                 if there is no operand.
+	 * @throws NullPointerException
+	 *                 if an operand is {@code null}.
+	 */
+	protected CompositeDecider(VoteDecider... operands) {
+		if (operands.length == 0)
+			throw new IllegalArgumentException("cannot combine no decider");
+		List<VoteDecider> flat = new ArrayList<>();
+		for (VoteDecider d : operands) {
+			Objects.requireNonNull(d);
+			if (d.getClass() == getClass())
+				flat.addAll(Arrays.asList(((CompositeDecider) d).operands));
+			else
+				flat.add(d);
+		}
+		flat.sort(Comparator.comparingInt(VoteDecider::getCost)); // stable
+		this.operands = flat.toArray(new VoteDecider[0]);
+	}
+
+	/**
+	 * Returns the sum of the costs of the operands, the cost of evaluating all of
+	 * them.
+	 */
+	@Override
+	public int getCost() {
+		long cost = 0;
+		for (VoteDecider d : operands)
+			cost += d.getCost();
+		return (int) Math.min(cost, Integer.MAX_VALUE);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * getClass().hashCode() + Arrays.hashCode(operands);
+	}
+
+	/**
+	 * Two combinations are defined to be equals if they are of the same class and
+	 * have equal operands, in the same order.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (obj == null || obj.getClass() != getClass())
+			return false;
+		return Arrays.equals(operands, ((CompositeDecider) obj).operands);
+	}
+
+	@Override
+	public String toString() {
+		return getClass().getSimpleName() + Arrays.toString(operands);
+	}
+
+}
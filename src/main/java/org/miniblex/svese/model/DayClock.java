@@ -0,0 +1,95 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.Objects;
+
+/**
+ * The current day, shared by everything which depends on the date rather than
+ * on the time, such as the age of a {@link Person}. The day is read from a
+ * {@link Clock}, the system one unless another is set, and kept until the
+ * clock leaves it: most reads only compare the time with the bounds of the
+ * day.
+ *
+ * Thread safe.
+ */
+public final class DayClock {
+	private static volatile Clock clock = Clock.systemDefaultZone();
+	private static volatile Day current; // the day of the last read, null if the clock changed
+
+	/**
+	 * Returns the current day.
+	 *
+	 * @return the current day.
+	 */
+	public static LocalDate today() {
+		return LocalDate.ofEpochDay(epochDay());
+	}
+
+	/**
+	 * Returns the current day, as a count of days from 1970-01-01.
+	 *
+	 * @return the current epoch day.
+	 */
+	public static long epochDay() {
+		Clock c = clock;
+		Day d = current;
+		long now = c.millis();
+		if (d == null || d.clock != c || now < d.start || now >= d.end)
+			current = d = new Day(c, LocalDate.now(c));
+		return d.epochDay;
+	}
+
+	/**
+	 * Sets the clock the day is read from, e.g. a fixed clock for testing and
+	 * benchmarking.
+	 *
+	 * @param c
+	 *                the clock, or {@code null} to use the system clock again.
+	 */
+	public static void setClock(Clock c) {
+		clock = c == null ? Clock.systemDefaultZone() : c;
+		current = null;
+	}
+
+	/**
+	 * A day, with its bounds in milliseconds in the zone of the clock it was read
+	 * from.
+	 */
+	private static final class Day {
+		private final Clock clock;
+		private final long epochDay;
+		private final long start; // inclusive
+		private final long end; // exclusive
+
+		private Day(Clock clock, LocalDate day) {
+			ZoneId zone = clock.getZone();
+			this.clock = Objects.requireNonNull(clock);
+			this.epochDay = day.toEpochDay();
+			this.start = day.atStartOfDay(zone).toInstant().toEpochMilli();
+			this.end = day.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+		}
+	}
+
+	private DayClock() {
+	}
+
+}
@@ -42,5 +42,78 @@ public enum ElectionMethod {
 	/**
 	 * The elector categorically chooses between two options, tipically yes and no.
 	 */
-	REFERENDUM
+	REFERENDUM,
+
+	/**
+	 * The elector chooses an order of preference among the options, as in
+	 * {@code ORDINAL}. The options are ranked by the Schulze method, which elects
+	 * the Condorcet winner if there is one.
+	 */
+	SCHULZE,
+
+	/**
+	 * The elector chooses an order of preference among the options, as in
+	 * {@code ORDINAL}. The options are ranked by the ranked pairs method, which
+	 * elects the Condorcet winner if there is one.
+	 */
+	RANKED_PAIRS,
+
+	/**
+	 * The elector chooses an order of preference among the options, as in
+	 * {@code ORDINAL}. The options are ranked by instant runoff: the option with
+	 * the fewest votes is eliminated, and its votes go to their next continuing
+	 * preference, until one option is left.
+	 */
+	IRV,
+
+	/**
+	 * The elector chooses an order of preference among the options, as in
+	 * {@code ORDINAL}. Several options are elected by single transferable vote:
+	 * an option reaching the Droop quota is elected and its surplus is
+	 * transferred; otherwise, the option with the fewest votes is eliminated.
+	 */
+	STV;
+
+	/**
+	 * Returns the method of the {@link Vote}s of a {@link VotingPaper} with this
+	 * method: {@code ORDINAL} for the methods whose electors choose an order of
+	 * preference, this method otherwise.
+	 *
+	 * @return the method of the votes.
+	 */
+	public ElectionMethod getVoteMethod() {
+		return isOrdinal() ? ORDINAL : this;
+	}
+
+	/**
+	 * Returns {@code true} if the electors choose an order of preference among
+	 * the options, {@code false} otherwise.
+	 *
+	 * @return {@code true} if the votes are orders of preference.
+	 */
+	public boolean isOrdinal() {
+		return this == ORDINAL || this == SCHULZE || this == RANKED_PAIRS || this == IRV || this == STV;
+	}
+
+	/**
+	 * Returns {@code true} if the options are ranked by comparing every pair of
+	 * them, {@code false} otherwise.
+	 *
+	 * @return {@code true} for Condorcet methods.
+	 */
+	public boolean isPairwise() {
+		return this == SCHULZE || this == RANKED_PAIRS;
+	}
+
+	/**
+	 * Returns {@code true} if the score of an option is the number of options it
+	 * is ranked above, {@code false} if it is the sum of the values given to it
+	 * by the votes.
+	 *
+	 * @return {@code true} for the methods which rank the options by rounds or
+	 *         by pairwise comparison.
+	 */
+	public boolean isRanking() {
+		return isPairwise() || this == IRV || this == STV;
+	}
 }
@@ -0,0 +1,176 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The people registered when a {@link Session} starts, and which of them each
+ * {@link VoteDecider} of the session lets vote. Every person gets a dense
+ * index, in the order they are scanned, and the eligibility of every decider is an
+ * {@link EligibilityBitmap} over the indexes: the deciders are evaluated once
+ * per person when the session starts, instead of at every vote, and the number
+ * of eligible people is known without counting them.
+ *
+ * Immutable, hence thread safe.
+ */
+final class ElectoralRoll {
+	private final String[] ssns; // the index of a person is the position of their SSN
+	private final int[] table; // open addressing table of index + 1, 0 if the slot is free
+	private final Map<VoteDecider, EligibilityBitmap> eligible;
+
+	/**
+	 * Builds the roll of the given people, evaluating each of the given deciders
+	 * on each of them.
+	 *
+	 * @param people
+	 *                the registered people.
+	 * @param deciders
+	 *                the deciders, not {@code null}.
+	 * @return the roll.
+	 */
+	static ElectoralRoll build(Collection<Person> people, Collection<VoteDecider> deciders) {
+		Builder b = new Builder(deciders);
+		people.forEach(b::add);
+		return b.build();
+	}
+
+	/**
+	 * Builds a roll from people added one by one, e.g. while scanning the
+	 * {@link PersonRepository}: only their SSNs and the eligibility bits are kept.
+	 * Not thread safe.
+	 */
+	static final class Builder {
+		private final List<String> ssns = new ArrayList<>();
+		private final Map<VoteDecider, BitSet> bits = new HashMap<>();
+
+		/**
+		 * Constructs a builder for the given deciders, not {@code null}.
+		 */
+		Builder(Collection<VoteDecider> deciders) {
+			for (VoteDecider d : deciders)
+				bits.put(d, new BitSet());
+		}
+
+		/**
+		 * Adds a person, whose index is the number of people added before.
+		 */
+		void add(Person p) {
+			int i = ssns.size();
+			ssns.add(p.getSsn());
+			for (Map.Entry<VoteDecider, BitSet> e : bits.entrySet())
+				if (e.getKey().canVote(p))
+					e.getValue().set(i);
+		}
+
+		/**
+		 * Returns the roll of the people added so far.
+		 */
+		ElectoralRoll build() {
+			Map<VoteDecider, EligibilityBitmap> eligible = new HashMap<>(bits.size() * 2);
+			for (Map.Entry<VoteDecider, BitSet> e : bits.entrySet())
+				eligible.put(e.getKey(), EligibilityBitmap.of(e.getValue()));
+			return new ElectoralRoll(ssns.toArray(new String[0]), eligible);
+		}
+	}
+
+	private ElectoralRoll(String[] ssns, Map<VoteDecider, EligibilityBitmap> eligible) {
+		this.ssns = ssns;
+		this.eligible = eligible;
+		this.table = new int[Integer.highestOneBit(Math.max(ssns.length, 1)) << 2]; // at most half full
+		int mask = table.length - 1;
+		for (int i = 0; i < ssns.length; i++) {
+			int slot = mix(ssns[i].hashCode()) & mask;
+			while (table[slot] != 0)
+				slot = (slot + 1) & mask;
+			table[slot] = i + 1;
+		}
+	}
+
+	/**
+	 * Returns the index of the person with the given SSN, or -1 if they were not
+	 * registered when the roll was built.
+	 */
+	int indexOf(String ssn) {
+		int mask = table.length - 1;
+		for (int slot = mix(ssn.hashCode()) & mask; table[slot] != 0; slot = (slot + 1) & mask)
+			if (ssns[table[slot] - 1].equals(ssn))
+				return table[slot] - 1;
+		return -1;
+	}
+
+	/**
+	 * Returns {@code true} if the given decider lets the person with the given SSN
+	 * vote according to this roll, {@code false} if it does not, if the person is
+	 * not in the roll or if the decider was not evaluated.
+	 */
+	boolean isEligible(VoteDecider d, String ssn) {
+		EligibilityBitmap b = eligible.get(d);
+		return b != null && b.contains(indexOf(ssn));
+	}
+
+	/**
+	 * Returns the number of people the given decider lets vote, or -1 if the
+	 * decider was not evaluated.
+	 */
+	long count(VoteDecider d) {
+		EligibilityBitmap b = eligible.get(d);
+		return b == null ? -1 : b.cardinality();
+	}
+
+	/**
+	 * Returns the number of people each evaluated decider lets vote.
+	 */
+	Map<VoteDecider, Long> counts() {
+		Map<VoteDecider, Long> res = new HashMap<>(eligible.size() * 2);
+		for (Map.Entry<VoteDecider, EligibilityBitmap> e : eligible.entrySet())
+			res.put(e.getKey(), e.getValue().cardinality());
+		return res;
+	}
+
+	/**
+	 * Returns the number of people in this roll.
+	 */
+	int size() {
+		return ssns.length;
+	}
+
+	/**
+	 * Finalization step of MurmurHash3, as the hash codes of similar SSNs differ
+	 * in few bits.
+	 */
+	private static int mix(int h) {
+		h ^= h >>> 16;
+		h *= 0x85ebca6b;
+		h ^= h >>> 13;
+		h *= 0xc2b2ae35;
+		h ^= h >>> 16;
+		return h;
+	}
+
+	@Override
+	public String toString() {
+		return "ElectoralRoll[people=" + ssns.length + ", deciders=" + eligible.size() + "]";
+	}
+
+}
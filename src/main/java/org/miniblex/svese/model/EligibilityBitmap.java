@@ -0,0 +1,99 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * Compressed set of voter indexes, in the style of a Roaring bitmap. The
+ * indexes are split by their upper 16 bits in chunks of 65536: a chunk holding
+ * at most 4096 indexes is stored as the sorted array of their lower 16 bits,
+ * a denser one as a bitmap of 1024 longs. No chunk takes more than 8KB, and an
+ * empty one takes nothing.
+ *
+ * Immutable, hence thread safe.
+ */
+final class EligibilityBitmap {
+	private static final int CHUNK_BITS = 16;
+	private static final int CHUNK_WORDS = (1 << CHUNK_BITS) / Long.SIZE;
+	private static final int ARRAY_MAX = 4096; // beyond this, an array takes more than a bitmap
+
+	private final Object[] chunks; // char[] or long[] by upper 16 bits, null if empty
+	private final long cardinality;
+
+	private EligibilityBitmap(Object[] chunks, long cardinality) {
+		this.chunks = chunks;
+		this.cardinality = cardinality;
+	}
+
+	/**
+	 * Returns a compressed copy of the given set of indexes.
+	 */
+	static EligibilityBitmap of(BitSet bits) {
+		long[] words = bits.toLongArray();
+		Object[] chunks = new Object[(words.length + CHUNK_WORDS - 1) / CHUNK_WORDS];
+		for (int c = 0; c < chunks.length; c++) {
+			int from = c * CHUNK_WORDS;
+			int to = Math.min(from + CHUNK_WORDS, words.length);
+			int card = 0;
+			for (int w = from; w < to; w++)
+				card += Long.bitCount(words[w]);
+			if (card == 0)
+				continue;
+			if (card > ARRAY_MAX) {
+				chunks[c] = Arrays.copyOfRange(words, from, from + CHUNK_WORDS);
+				continue;
+			}
+			char[] low = new char[card];
+			int k = 0;
+			for (int w = from; w < to; w++)
+				for (long word = words[w]; word != 0; word &= word - 1)
+					low[k++] = (char) ((w - from) * Long.SIZE + Long.numberOfTrailingZeros(word));
+			chunks[c] = low;
+		}
+		return new EligibilityBitmap(chunks, bits.cardinality());
+	}
+
+	/**
+	 * Returns {@code true} if the given index is in this set.
+	 */
+	boolean contains(int index) {
+		int c = index >>> CHUNK_BITS;
+		if (index < 0 || c >= chunks.length)
+			return false;
+		Object chunk = chunks[c];
+		char low = (char) index;
+		if (chunk instanceof long[])
+			return (((long[]) chunk)[low >>> 6] & (1L << low)) != 0;
+		return chunk != null && Arrays.binarySearch((char[]) chunk, low) >= 0;
+	}
+
+	/**
+	 * Returns the number of indexes in this set.
+	 */
+	long cardinality() {
+		return cardinality;
+	}
+
+	@Override
+	public String toString() {
+		return "EligibilityBitmap[cardinality=" + cardinality + "]";
+	}
+
+}
@@ -0,0 +1,89 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Numbers of eligible people by {@link VoteDecider}, so that the turnout of
+ * papers with the same decider is computed from a single count, and results
+ * requests do not count again. A count is valid for the version of the
+ * registered people and the {@link DayClock} day it was computed on: the
+ * version is changed by the lifecycle callbacks of {@link Person} whenever a
+ * person is written through JPA. Writes made to the database by other means
+ * are not noticed, and require {@link PersonRepository#peopleChanged}.
+ *
+ * Thread safe.
+ */
+final class EligibilityCache {
+	private static final Object EVERYONE = new Object(); // key of the null decider
+	private static final AtomicLong version = new AtomicLong();
+	private static final Map<Object, Entry> counts = new ConcurrentHashMap<>();
+
+	/**
+	 * Returns the current version of the registered people. A count must be
+	 * stored with the version read before computing it.
+	 */
+	static long version() {
+		return version.get();
+	}
+
+	/**
+	 * Returns the number of people the given decider lets vote, or -1 if it is
+	 * not known for the given version and day.
+	 */
+	static long get(VoteDecider d, long version, long day) {
+		Entry e = counts.get(d == null ? EVERYONE : d);
+		return e != null && e.version == version && e.day == day ? e.count : -1;
+	}
+
+	/**
+	 * Stores the number of people the given decider lets vote, computed for the
+	 * given version and day. Ignored if the people have changed since.
+	 */
+	static void put(VoteDecider d, long version, long day, long count) {
+		if (version == EligibilityCache.version.get())
+			counts.put(d == null ? EVERYONE : d, new Entry(version, day, count));
+	}
+
+	/**
+	 * Discards every count, as the registered people have changed.
+	 */
+	static void invalidate() {
+		version.incrementAndGet();
+		counts.clear();
+	}
+
+	private static final class Entry {
+		private final long version;
+		private final long day;
+		private final long count;
+
+		private Entry(long version, long day, long count) {
+			this.version = version;
+			this.day = day;
+			this.count = count;
+		}
+	}
+
+	private EligibilityCache() {
+	}
+
+}
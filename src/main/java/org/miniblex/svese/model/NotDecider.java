@@ -0,0 +1,97 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Objects;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Implementation of {@link VoteDecider} which lets vote the people another
+ * decider does not let vote, e.g. those who are not on an exclusion list.
+ *
+ * Immutable.
+ */
+public final class NotDecider implements VoteDecider {
+	private static final long serialVersionUID = 1L;
+
+	private final VoteDecider decider;
+
+	/**
+	 * Constructs a new {@link NotDecider} of the given decider.
+	 *
+	 * @param decider
+	 *                the decider to negate.
+	 */
+	public NotDecider(VoteDecider decider) {
+		this.decider = Objects.requireNonNull(decider);
+	}
+
+	@Override
+	public boolean canVote(Person p) {
+		return p != null && !decider.canVote(p);
+	}
+
+	/**
+	 * Returns the negation of the specification of the negated decider, or
+	 * {@code null} if it has none. The filter of the negated decider cannot be
+	 * negated, as it may select people it does not let vote.
+	 */
+	@Override
+	public Specification<Person> toSpecification() {
+		Specification<Person> s = decider.toSpecification();
+		return s == null ? null : Specification.not(s);
+	}
+
+	@Override
+	public int getCost() {
+		return decider.getCost();
+	}
+
+	/**
+	 * Returns the negated decider.
+	 */
+	@Override
+	public VoteDecider negate() {
+		return decider;
+	}
+
+	@Override
+	public int hashCode() {
+		return ~decider.hashCode();
+	}
+
+	/**
+	 * Two {@link NotDecider}s are defined to be equals if they negate equal
+	 * deciders.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof NotDecider))
+			return false;
+		return decider.equals(((NotDecider) obj).decider);
+	}
+
+	@Override
+	public String toString() {
+		return "NotDecider[" + decider + "]";
+	}
+
+}
@@ -0,0 +1,87 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Implementation of {@link VoteDecider} which lets vote the people at least
+ * one of its operands lets vote. The operands are evaluated from the
+ * cheapest, until one accepts the person. The people are only counted by the
+ * database if every operand can be expressed as a query.
+ *
+ * Immutable.
+ */
+public final class OrDecider extends CompositeDecider {
+	private static final long serialVersionUID = 1L;
+
+	/**
+	 * Constructs a new {@link OrDecider} of the given deciders.
+	 *
+	 * @param operands
+	 *                the deciders, at least one.
+	 * @throws IllegalArgumentException
+	 *                 if there is no operand.
+	 */
+	public OrDecider(VoteDecider... operands) {
+		super(operands);
+	}
+
+	@Override
+	public boolean canVote(Person p) {
+		if (p == null)
+			return false;
+		for (VoteDecider d : operands)
+			if (d.canVote(p))
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the disjunction of the specifications of the operands, or
+	 * {@code null} if one of them has none.
+	 */
+	@Override
+	public Specification<Person> toSpecification() {
+		Specification<Person> res = null;
+		for (VoteDecider d : operands) {
+			Specification<Person> s = d.toSpecification();
+			if (s == null)
+				return null;
+			res = res == null ? Specification.where(s) : res.or(s);
+		}
+		return res;
+	}
+
+	/**
+	 * Returns the disjunction of the filters of the operands, or {@code null} if
+	 * one of them has none.
+	 */
+	@Override
+	public Specification<Person> toFilter() {
+		Specification<Person> res = null;
+		for (VoteDecider d : operands) {
+			Specification<Person> s = d.toFilter();
+			if (s == null)
+				return null;
+			res = res == null ? Specification.where(s) : res.or(s);
+		}
+		return res;
+	}
+
+}
@@ -32,7 +32,7 @@ import java.util.Set;
  * which size-1 points is assigned.
  */
 public class OrdinalVote implements Vote {
-	private List<Choice> order;
+	private final List<Choice> order;
 
 	/**
 	 * Constructs a new OrdinalVote from the given ordered list of {@link Choice}s.
@@ -51,7 +51,17 @@ public class OrdinalVote implements Vote {
 		for (Choice c : Objects.requireNonNull(order))
 			if (!checkDups.add(Objects.requireNonNull(c)))
 				throw new IllegalArgumentException("duplicate Choice in list");
-		this.order = order;
+		this.order = List.copyOf(order);
+	}
+
+	/**
+	 * Returns the ordered list of {@link Choice}s of this vote, from most to least
+	 * valuable.
+	 *
+	 * @return the order of preference. Unmodifiable.
+	 */
+	public List<Choice> getOrder() {
+		return order;
 	}
 
 	/**
@@ -63,7 +73,15 @@ public class OrdinalVote implements Vote {
 		int idx = order.indexOf(c);
 		if (idx < 0)
 			return 0;
-		return order.size() - idx - 1;
+		return value(order.size(), idx);
+	}
+
+	/**
+	 * Returns the value of the {@link Choice} at the given position of an order
+	 * of the given length.
+	 */
+	static int value(int length, int position) {
+		return length - position - 1;
 	}
 
 	@Override
@@ -0,0 +1,173 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+
+/**
+ * {@link Tally} of the Condorcet methods. Keeps the pairwise preference matrix
+ * of the paper: for every ordered pair of choices {@code (a, b)}, the number of
+ * votes which prefer {@code a} to {@code b}. A vote prefers every choice of its
+ * order of preference to the ones which follow it and to the ones it does not
+ * rank.
+ *
+ * The matrix is updated as votes are counted, so that ranking the choices only
+ * depends on the number {@code n} of choices: it takes {@code O(n^3)} time with
+ * both the Schulze and the ranked pairs methods.
+ *
+ * The score of a choice is the number of choices it defeats in the final
+ * ranking: the winner defeats every other choice.
+ */
+final class PairwiseTally implements Tally {
+	private final ElectionMethod method;
+	private final int n;
+	private final AtomicLongArray prefs; // prefs[a * n + b]: votes preferring a to b
+
+	/**
+	 * Constructs an empty tally for a paper with the given Condorcet method and
+	 * number of choices.
+	 *
+	 * @throws IllegalArgumentException
+	 *                 if the method is not a Condorcet method.
+	 */
+	PairwiseTally(ElectionMethod method, int choices) {
+		if (!method.isPairwise())
+			throw new IllegalArgumentException("election method " + method + " is not pairwise");
+		this.method = method;
+		this.n = choices;
+		this.prefs = new AtomicLongArray(choices * choices);
+	}
+
+	@Override
+	public void count(int[] ballot) {
+		forEachPreference(ballot, prefs::incrementAndGet);
+	}
+
+	@Override
+	public void recount(CompactBallots ballots, ForkJoinPool pool) {
+		long[] matrix = ballots.reduce(pool, () -> new long[n * n], (m, b) -> forEachPreference(b, cell -> m[cell]++), (a, b) -> {
+			for (int i = 0; i < a.length; i++)
+				a[i] += b[i];
+			return a;
+		});
+		for (int i = 0; i < matrix.length; i++)
+			prefs.set(i, matrix[i]);
+	}
+
+	/**
+	 * Calls {@code cell} with the index in the matrix of every pair of choices
+	 * {@code (a, b)} such that the given vote prefers {@code a} to {@code b}.
+	 */
+	private void forEachPreference(int[] ballot, IntConsumer cell) {
+		boolean[] ranked = new boolean[n];
+		for (int a : ballot) {
+			ranked[a] = true;
+			for (int b = 0; b < n; b++)
+				if (!ranked[b])
+					cell.accept(a * n + b);
+		}
+	}
+
+	@Override
+	public long[] scores() {
+		long[][] d = new long[n][n];
+		for (int a = 0; a < n; a++)
+			for (int b = 0; b < n; b++)
+				d[a][b] = prefs.get(a * n + b);
+		return method == ElectionMethod.SCHULZE ? schulze(d) : rankedPairs(d);
+	}
+
+	/**
+	 * Ranks the choices with the Schulze method, given the pairwise preference
+	 * matrix {@code d}. The strength of the strongest path from every choice to
+	 * every other is computed with a variant of the Floyd-Warshall algorithm: a
+	 * choice defeats another if its strongest path to it is stronger than the
+	 * opposite one.
+	 *
+	 * @return the number of choices defeated by every choice.
+	 */
+	static long[] schulze(long[][] d) {
+		int n = d.length;
+		long[][] p = new long[n][n]; // strength of the strongest path
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				if (i != j && d[i][j] > d[j][i])
+					p[i][j] = d[i][j];
+		for (int k = 0; k < n; k++)
+			for (int i = 0; i < n; i++)
+				if (i != k)
+					for (int j = 0; j < n; j++)
+						if (j != i && j != k)
+							p[i][j] = Math.max(p[i][j], Math.min(p[i][k], p[k][j]));
+		long[] scores = new long[n];
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				if (i != j && p[i][j] > p[j][i])
+					scores[i]++;
+		return scores;
+	}
+
+	/**
+	 * Ranks the choices with the ranked pairs method, given the pairwise
+	 * preference matrix {@code d}. The pairs of choices are sorted by strength of
+	 * victory, that is, by votes for the winner and then by fewest votes for the
+	 * loser, and locked in this order unless they would create a cycle: a choice
+	 * defeats the choices it reaches in the graph of the locked pairs.
+	 *
+	 * @return the number of choices defeated by every choice.
+	 */
+	static long[] rankedPairs(long[][] d) {
+		int n = d.length;
+		List<int[]> pairs = new ArrayList<>();
+		for (int i = 0; i < n; i++)
+			for (int j = 0; j < n; j++)
+				if (i != j && d[i][j] > d[j][i])
+					pairs.add(new int[] { i, j });
+		pairs.sort(Comparator.<int[]>comparingLong(p -> -d[p[0]][p[1]]).thenComparingLong(p -> d[p[1]][p[0]]).thenComparingInt(p -> p[0]).thenComparingInt(p -> p[1]));
+		BitSet[] reach = new BitSet[n]; // choices reached by every choice through locked pairs
+		for (int i = 0; i < n; i++)
+			reach[i] = new BitSet(n);
+		for (int[] pair : pairs) {
+			int winner = pair[0];
+			int loser = pair[1];
+			if (reach[loser].get(winner))
+				continue; // would create a cycle
+			BitSet gained = (BitSet) reach[loser].clone();
+			gained.set(loser);
+			for (int i = 0; i < n; i++)
+				if (i == winner || reach[i].get(winner))
+					reach[i].or(gained);
+		}
+		long[] scores = new long[n];
+		for (int i = 0; i < n; i++)
+			scores[i] = reach[i].cardinality();
+		return scores;
+	}
+
+	@Override
+	public String toString() {
+		return "PairwiseTally[method=" + method + ", choices=" + n + "]";
+	}
+
+}
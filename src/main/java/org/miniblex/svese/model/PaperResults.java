@@ -0,0 +1,116 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.ElementCollection;
+import javax.persistence.Entity;
+import javax.persistence.FetchType;
+import javax.persistence.Id;
+import javax.persistence.OrderColumn;
+
+/**
+ * The stored {@link VotingPaper.Results} of a paper of a closed
+ * {@link Session}, so that they are not computed again after a restart.
+ *
+ * A paper is identified by the journal of its session and by its id in the
+ * session: the results of sessions which are not journaled are not stored, as
+ * the sessions themselves do not survive a restart.
+ *
+ * Immutable.
+ */
+@Entity
+public class PaperResults {
+	@Id
+	private String id; // journal id and paper id
+
+	private long totalVotes;
+	private double turnout;
+
+	@ElementCollection(fetch = FetchType.EAGER)
+	@OrderColumn
+	private List<Long> scores; // score of every choice, by choice index
+
+	/**
+	 * Constructs new PaperResults. Should only be called by Spring Data JPA for
+	 * instantiating from the database.
+	 */
+	private PaperResults() {
+	}
+
+	/**
+	 * Constructs the stored form of the given results.
+	 */
+	PaperResults(String id, long[] scores, long totalVotes, double turnout) {
+		this.id = id;
+		this.scores = new ArrayList<>(scores.length);
+		for (long s : scores)
+			this.scores.add(s);
+		this.totalVotes = totalVotes;
+		this.turnout = turnout;
+	}
+
+	/**
+	 * Returns the id of the stored paper, as built by {@code idOf}.
+	 *
+	 * @return the id.
+	 */
+	public String getId() {
+		return id;
+	}
+
+	/**
+	 * Returns the id of the paper with the given id in the session with the given
+	 * journal.
+	 */
+	static String idOf(String journalId, int paperId) {
+		return journalId + "#" + paperId;
+	}
+
+	/**
+	 * Returns the score of every choice of the paper, by choice index.
+	 */
+	long[] getScores() {
+		long[] res = new long[scores.size()];
+		for (int i = 0; i < res.length; i++)
+			res[i] = scores.get(i);
+		return res;
+	}
+
+	/**
+	 * Returns the total number of votes.
+	 */
+	long getTotalVotes() {
+		return totalVotes;
+	}
+
+	/**
+	 * Returns the turnout, in [0,1].
+	 */
+	double getTurnout() {
+		return turnout;
+	}
+
+	@Override
+	public String toString() {
+		return "PaperResults[id=" + id + ", totalVotes=" + totalVotes + ", turnout=" + turnout + ", scores=" + scores + "]";
+	}
+
+}
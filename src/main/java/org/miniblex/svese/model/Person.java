@@ -19,9 +19,21 @@ package org.miniblex.svese.model;
 
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 
 import javax.persistence.Entity;
 import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.PostPersist;
+import javax.persistence.PostRemove;
+import javax.persistence.PostUpdate;
+import javax.persistence.Table;
+
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 /**
  * Representation of a real person, possibly an elector.
@@ -29,7 +41,10 @@ import javax.persistence.Id;
  * Immutable.
  */
 @Entity
+@Table(indexes = { @Index(name = "person_birth_date", columnList = "birthDate"), @Index(name = "person_birth_place", columnList = "birthPlace") }) // eligibility
 public class Person {
+	private static final List<Consumer<String>> changeListeners = new CopyOnWriteArrayList<>();
+
 	@Id
 	private String ssn;
 
@@ -47,7 +62,7 @@ public class Person {
 	 * @return the age.
 	 */
 	public int age() {
-		return Period.between(birthDate, LocalDate.now()).getYears();
+		return Period.between(birthDate, DayClock.today()).getYears();
 	}
 
 	/**
@@ -114,6 +129,48 @@ public class Person {
 		return pwHash;
 	}
 
+	/**
+	 * Invalidates the cached numbers of eligible people, as the registered people
+	 * have changed, and notifies the change listeners. Called by JPA when the
+	 * write is flushed, and again once its transaction completes, as the people
+	 * read in between are still the old ones. Not called for bulk writes, which
+	 * must call {@link PersonRepository#peopleChanged}.
+	 */
+	@PostPersist
+	@PostUpdate
+	@PostRemove
+	private void changed() {
+		String changed = ssn;
+		EligibilityCache.invalidate();
+		notifyChanged(changed);
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCompletion(int status) {
+					EligibilityCache.invalidate();
+					notifyChanged(changed);
+				}
+			});
+		}
+	}
+
+	/**
+	 * Registers a listener called after a person is written, with its SSN, or
+	 * with {@code null} after {@link PersonRepository#peopleChanged}, when anyone
+	 * may have changed. Used to drop the data cached from the people.
+	 *
+	 * @param l
+	 *                the listener.
+	 */
+	public static void addChangeListener(Consumer<String> l) {
+		changeListeners.add(Objects.requireNonNull(l));
+	}
+
+	static void notifyChanged(String ssn) {
+		for (Consumer<String> l : changeListeners)
+			l.accept(ssn);
+	}
+
 	@Override
 	public int hashCode() {
 		final int prime = 31;
@@ -141,6 +198,19 @@ public class Person {
 	private Person() {
 	}
 
+	/**
+	 * Constructs a new Person which is not a SVeSE user. Used to build people
+	 * which are not entities, such as in tests and benchmarks or by
+	 * {@link PersonRepository#scan}.
+	 */
+	Person(String ssn, String firstName, String lastName, LocalDate birthDate, String birthPlace) {
+		this.ssn = ssn;
+		this.firstName = firstName;
+		this.lastName = lastName;
+		this.birthDate = birthDate;
+		this.birthPlace = birthPlace;
+	}
+
 	@Override
 	public String toString() {
 		return "Person[\"" + firstName + " " + lastName + "\", ssn=" + ssn + "]";
@@ -17,12 +17,69 @@
 
 package org.miniblex.svese.model;
 
+import java.util.List;
+import java.util.function.Consumer;
+
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
 
 /**
  * Spring Data JPA {@link org.springframework.data.repository.Repository} for
  * the {@link Person} class. This is used to retrieve people's data from the
- * persistent storage.
+ * persistent storage. People can be selected by the {@link Specification} of
+ * a {@link VoteDecider}.
  */
-public interface PersonRepository extends JpaRepository<Person, String> {
+public interface PersonRepository extends JpaRepository<Person, String>, JpaSpecificationExecutor<Person>, PersonScanRepository {
+	/**
+	 * Number of people read by each query of {@link #scan}.
+	 */
+	int SCAN_PAGE_SIZE = 10_000;
+
+	/**
+	 * Discards the data cached from the people: the numbers of eligible people of
+	 * the sessions which have not started, and what the change listeners of
+	 * {@link Person} cache. Must be called after people are written other than
+	 * through their entities, e.g. by the batch deletes of this repository or by
+	 * bulk JPQL or SQL statements, which do not run the lifecycle callbacks of
+	 * {@link Person}.
+	 */
+	static void peopleChanged() {
+		EligibilityCache.invalidate();
+		Person.notifyChanged(null);
+	}
+
+	/**
+	 * Passes every registered {@link Person} to the given action, in order of SSN,
+	 * as {@link #scan(Specification, Consumer)} with no specification.
+	 *
+	 * @param action
+	 *                the action.
+	 */
+	default void scan(Consumer<Person> action) {
+		scan(null, action);
+	}
+
+	/**
+	 * Passes every {@link Person} selected by the given specification to the given
+	 * action, in order of SSN. The people are read in pages of
+	 * {@link #SCAN_PAGE_SIZE}, each starting after the last SSN of the previous
+	 * one, and are not managed: any number of people is scanned in constant
+	 * memory, unlike {@code findAll}.
+	 *
+	 * @param spec
+	 *                the specification, or {@code null} to scan everyone.
+	 * @param action
+	 *                the action.
+	 */
+	default void scan(Specification<Person> spec, Consumer<Person> action) {
+		String after = "";
+		List<Person> page;
+		do {
+			page = findPageAfter(after, spec, SCAN_PAGE_SIZE);
+			page.forEach(action);
+			if (!page.isEmpty())
+				after = page.get(page.size() - 1).getSsn();
+		} while (page.size() == SCAN_PAGE_SIZE);
+	}
 }
@@ -0,0 +1,44 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.List;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Queries of {@link PersonRepository} which Spring Data cannot derive,
+ * implemented by {@link PersonScanRepositoryImpl}.
+ */
+public interface PersonScanRepository {
+	/**
+	 * Returns the first people with an SSN greater than the given one, among
+	 * those selected by the given specification, in order of SSN. Only the
+	 * columns a {@link VoteDecider} may need are read: the people are not
+	 * managed entities, and hold no credentials.
+	 *
+	 * @param ssn
+	 *                the SSN to start after.
+	 * @param spec
+	 *                the specification, or {@code null} to select everyone.
+	 * @param size
+	 *                the maximum number of people to return.
+	 * @return the people.
+	 */
+	List<Person> findPageAfter(String ssn, Specification<Person> spec, int size);
+}
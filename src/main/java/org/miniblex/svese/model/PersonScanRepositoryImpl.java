@@ -0,0 +1,59 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.persistence.Tuple;
+import javax.persistence.criteria.CriteriaBuilder;
+import javax.persistence.criteria.CriteriaQuery;
+import javax.persistence.criteria.Predicate;
+import javax.persistence.criteria.Root;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Implementation of {@link PersonScanRepository} with the JPA criteria API,
+ * picked up by Spring Data by its name.
+ */
+class PersonScanRepositoryImpl implements PersonScanRepository {
+	@PersistenceContext
+	private EntityManager em;
+
+	@Override
+	public List<Person> findPageAfter(String ssn, Specification<Person> spec, int size) {
+		CriteriaBuilder cb = em.getCriteriaBuilder();
+		CriteriaQuery<Tuple> q = cb.createTupleQuery();
+		Root<Person> root = q.from(Person.class);
+		Predicate where = cb.greaterThan(root.get("ssn"), ssn);
+		Predicate selected = spec == null ? null : spec.toPredicate(root, q, cb);
+		if (selected != null)
+			where = cb.and(where, selected);
+		q.multiselect(root.get("ssn"), root.get("firstName"), root.get("lastName"), root.get("birthDate"), root.get("birthPlace"));
+		q.where(where).orderBy(cb.asc(root.get("ssn")));
+		List<Person> res = new ArrayList<>(size);
+		for (Tuple t : em.createQuery(q).setMaxResults(size).getResultList())
+			res.add(new Person(t.get(0, String.class), t.get(1, String.class), t.get(2, String.class), t.get(3, LocalDate.class), t.get(4, String.class)));
+		return res;
+	}
+
+}
@@ -0,0 +1,87 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * The {@link VotingPaper.Results} of a {@link VotingPaper} together with those
+ * of its subpapers, as returned by {@link VotingPaper#getResultTree}. The
+ * results of a PREFERENCED paper are only meaningful together with those of
+ * its subpapers: this is a snapshot of all of them.
+ *
+ * Immutable.
+ */
+public final class ResultTree {
+	private final VotingPaper paper;
+	private final VotingPaper.Results results;
+	private final Map<Choice, ResultTree> subtrees; // only choices with a subpaper, in the order of the paper
+
+	ResultTree(VotingPaper paper, VotingPaper.Results results, Map<Choice, ResultTree> subtrees) {
+		this.paper = Objects.requireNonNull(paper);
+		this.results = Objects.requireNonNull(results);
+		this.subtrees = Collections.unmodifiableMap(subtrees);
+	}
+
+	/**
+	 * Returns the {@link VotingPaper} at the root of this tree.
+	 *
+	 * @return the paper.
+	 */
+	public VotingPaper getPaper() {
+		return paper;
+	}
+
+	/**
+	 * Returns the results of the paper at the root of this tree.
+	 *
+	 * @return the results.
+	 */
+	public VotingPaper.Results getResults() {
+		return results;
+	}
+
+	/**
+	 * Returns the tree of the subpaper of the given {@link Choice}, or
+	 * {@code null} if the choice does not have a subpaper.
+	 *
+	 * @param c
+	 *                the choice.
+	 * @return the results of the subpaper of the choice, or {@code null}.
+	 */
+	public ResultTree getSubtree(Choice c) {
+		return subtrees.get(c);
+	}
+
+	/**
+	 * Returns the trees of the subpapers, by the {@link Choice} they belong to.
+	 *
+	 * @return the subtrees. Unmodifiable.
+	 */
+	public Map<Choice, ResultTree> getSubtrees() {
+		return subtrees;
+	}
+
+	@Override
+	public String toString() {
+		return "ResultTree[" + results + ", subtrees=" + subtrees.values() + "]";
+	}
+
+}
@@ -0,0 +1,247 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Tally} of the instant-runoff ({@link ElectionMethod#IRV}) and single
+ * transferable vote ({@link ElectionMethod#STV}) methods. Identical votes are
+ * aggregated: the tally keeps every distinct order of preference, with the
+ * number of votes which chose it.
+ *
+ * The counting rounds run on buckets: every continuing choice holds the
+ * parcels of orders of preference whose first continuing choice it is, each
+ * with its current value. When a choice is elected or eliminated, only its
+ * bucket is moved to the next continuing preferences, so that a round does not
+ * depend on the number of votes.
+ *
+ * The score of a choice is the number of choices ranked below it: elected
+ * choices in order of election, then the choices still continuing when the
+ * seats are filled by number of votes, then the eliminated choices from the
+ * last to the first eliminated. With instant runoff, choices are eliminated
+ * until one is left, which wins.
+ */
+final class RunoffTally implements Tally {
+	private final ElectionMethod method;
+	private final int n;
+	private final int seats;
+	private final ConcurrentHashMap<Order, LongAdder> orders = new ConcurrentHashMap<>(); // votes for every distinct order
+
+	/**
+	 * Constructs an empty tally for a paper with the given method, number of
+	 * choices and number of seats.
+	 *
+	 * @throws IllegalArgumentException
+	 *                 if the method is not IRV or STV, or if IRV is given more
+	 *                 than one seat.
+	 */
+	RunoffTally(ElectionMethod method, int choices, int seats) {
+		if (method != ElectionMethod.IRV && method != ElectionMethod.STV)
+			throw new IllegalArgumentException("election method " + method + " is not a runoff");
+		if (seats < 1 || seats > choices || (method == ElectionMethod.IRV && seats != 1))
+			throw new IllegalArgumentException("cannot elect " + seats + " out of " + choices + " choices with election method " + method);
+		this.method = method;
+		this.n = choices;
+		this.seats = seats;
+	}
+
+	@Override
+	public void count(int[] ballot) {
+		Order key = new Order(ballot);
+		LongAdder votes = orders.get(key);
+		if (votes == null)
+			votes = orders.computeIfAbsent(new Order(ballot.clone()), k -> new LongAdder()); // the key outlives the ballot
+		votes.increment();
+	}
+
+	@Override
+	public void recount(CompactBallots ballots, ForkJoinPool pool) {
+		Map<Order, long[]> counted = ballots.<Map<Order, long[]>>reduce(pool, HashMap::new, (m, b) -> m.computeIfAbsent(new Order(b), k -> new long[1])[0]++, (a, b) -> {
+			Map<Order, long[]> big = a.size() >= b.size() ? a : b;
+			Map<Order, long[]> small = big == a ? b : a;
+			small.forEach((k, v) -> big.merge(k, v, (x, y) -> {
+				x[0] += y[0];
+				return x;
+			}));
+			return big;
+		});
+		orders.clear();
+		counted.forEach((k, v) -> {
+			LongAdder votes = new LongAdder();
+			votes.add(v[0]);
+			orders.put(k, votes);
+		});
+	}
+
+	/**
+	 * A distinct order of preference, as choice indexes.
+	 */
+	private static final class Order {
+		private final int[] choices;
+		private final int hash;
+
+		Order(int[] choices) {
+			this.choices = choices;
+			this.hash = Arrays.hashCode(choices);
+		}
+
+		@Override
+		public int hashCode() {
+			return hash;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			return obj instanceof Order && Arrays.equals(choices, ((Order) obj).choices);
+		}
+	}
+
+	/**
+	 * The votes for an order of preference which currently count for one of its
+	 * choices.
+	 */
+	private static final class Parcel {
+		private final int[] order;
+		private int next; // position in the order of the choice the parcel counts for
+		private double value; // votes, reduced by the surplus transfers
+
+		Parcel(int[] order, double value) {
+			this.order = order;
+			this.value = value;
+		}
+	}
+
+	@Override
+	public long[] scores() {
+		List<List<Parcel>> buckets = new ArrayList<>(n);
+		for (int i = 0; i < n; i++)
+			buckets.add(new ArrayList<>());
+		double[] votes = new double[n]; // current votes of every continuing choice
+		boolean[] continuing = new boolean[n];
+		Arrays.fill(continuing, true);
+		double total = 0;
+		for (Map.Entry<Order, LongAdder> e : orders.entrySet()) {
+			Parcel p = new Parcel(e.getKey().choices, e.getValue().sum());
+			total += p.value;
+			place(p, buckets, votes, continuing);
+		}
+		double[] firstVotes = votes.clone(); // breaks ties when eliminating
+		double quota = Math.floor(total / (seats + 1)) + 1; // Droop quota
+		List<Integer> elected = new ArrayList<>();
+		List<Integer> eliminated = new ArrayList<>();
+		int remaining = n;
+		while (remaining > 0 && (method == ElectionMethod.IRV || elected.size() < seats)) {
+			if (method == ElectionMethod.STV && elected.size() + remaining <= seats) {
+				while (remaining > 0) { // every continuing choice is elected
+					int best = best(votes, continuing);
+					continuing[best] = false;
+					elected.add(best);
+					remaining--;
+				}
+				break;
+			}
+			int best = best(votes, continuing);
+			if (method == ElectionMethod.STV && votes[best] >= quota) {
+				elected.add(best);
+				transfer(best, (votes[best] - quota) / votes[best], buckets, votes, continuing);
+			} else {
+				int worst = worst(votes, firstVotes, continuing);
+				eliminated.add(worst);
+				transfer(worst, 1, buckets, votes, continuing);
+			}
+			remaining--;
+		}
+		List<Integer> ranking = new ArrayList<>(elected);
+		while (remaining-- > 0) {
+			int best = best(votes, continuing);
+			continuing[best] = false;
+			ranking.add(best);
+		}
+		for (int i = eliminated.size() - 1; i >= 0; i--)
+			ranking.add(eliminated.get(i));
+		long[] scores = new long[n];
+		for (int i = 0; i < n; i++)
+			scores[ranking.get(i)] = n - 1 - i;
+		return scores;
+	}
+
+	/**
+	 * Adds the given parcel to the bucket of its first continuing choice from its
+	 * current position, or drops it if the order of preference is exhausted.
+	 */
+	private static void place(Parcel p, List<List<Parcel>> buckets, double[] votes, boolean[] continuing) {
+		while (p.next < p.order.length && !continuing[p.order[p.next]])
+			p.next++;
+		if (p.next == p.order.length || p.value == 0)
+			return;
+		int c = p.order[p.next];
+		buckets.get(c).add(p);
+		votes[c] += p.value;
+	}
+
+	/**
+	 * Removes the given choice and moves its bucket to the next continuing
+	 * preferences, keeping the given fraction of the value of every parcel.
+	 */
+	private static void transfer(int c, double fraction, List<List<Parcel>> buckets, double[] votes, boolean[] continuing) {
+		continuing[c] = false;
+		votes[c] = 0;
+		List<Parcel> bucket = buckets.set(c, null);
+		for (Parcel p : bucket) {
+			p.value *= fraction;
+			place(p, buckets, votes, continuing);
+		}
+	}
+
+	/**
+	 * Returns the continuing choice with the most votes, the first one if tied.
+	 */
+	private static int best(double[] votes, boolean[] continuing) {
+		int best = -1;
+		for (int i = 0; i < votes.length; i++)
+			if (continuing[i] && (best < 0 || votes[i] > votes[best]))
+				best = i;
+		return best;
+	}
+
+	/**
+	 * Returns the continuing choice with the fewest votes. Ties are broken by
+	 * fewest first preferences, then by eliminating the last choice.
+	 */
+	private static int worst(double[] votes, double[] firstVotes, boolean[] continuing) {
+		int worst = -1;
+		for (int i = 0; i < votes.length; i++)
+			if (continuing[i] && (worst < 0 || votes[i] < votes[worst] || (votes[i] == votes[worst] && firstVotes[i] <= firstVotes[worst])))
+				worst = i;
+		return worst;
+	}
+
+	@Override
+	public String toString() {
+		return "RunoffTally[method=" + method + ", choices=" + n + ", seats=" + seats + ", orders=" + orders.size() + "]";
+	}
+
+}
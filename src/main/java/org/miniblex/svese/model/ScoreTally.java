@@ -0,0 +1,74 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * {@link Tally} which sums the values given by every vote to every choice: one
+ * point to the chosen choice of a categorical vote, the values of
+ * {@link OrdinalVote} to the choices of an order of preference.
+ */
+final class ScoreTally implements Tally {
+	private final boolean ordinal;
+	private final LongAdder[] tallies; // running score of each choice, by choice index
+
+	/**
+	 * Constructs an empty tally for a paper with the given method and number of
+	 * choices.
+	 */
+	ScoreTally(ElectionMethod method, int choices) {
+		this.ordinal = method.isOrdinal();
+		this.tallies = new LongAdder[choices];
+		for (int i = 0; i < choices; i++)
+			tallies[i] = new LongAdder();
+	}
+
+	/**
+	 * Adds the values of the given vote to the tallies, in a single pass over the
+	 * vote: an order of preference gives its value to every choice by position.
+	 */
+	@Override
+	public void count(int[] ballot) {
+		if (ordinal) {
+			for (int i = 0; i < ballot.length - 1; i++) // the last choice is worth zero
+				tallies[ballot[i]].add(OrdinalVote.value(ballot.length, i));
+		} else {
+			tallies[ballot[0]].increment();
+		}
+	}
+
+	@Override
+	public void recount(CompactBallots ballots, ForkJoinPool pool) {
+		long[] scores = ballots.tally(pool);
+		for (int i = 0; i < tallies.length; i++) {
+			tallies[i].reset();
+			tallies[i].add(scores[i]);
+		}
+	}
+
+	@Override
+	public long[] scores() {
+		long[] res = new long[tallies.length];
+		for (int i = 0; i < res.length; i++)
+			res[i] = tallies[i].sum();
+		return res;
+	}
+
+}
@@ -17,64 +17,139 @@
 
 package org.miniblex.svese.model;
 
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 
 import org.miniblex.svese.SVeSE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.data.jpa.domain.Specification;
 
 /**
- * Representation of the voting session and its properties. The system can
- * handle only one voting session at a time, therefore a (slightly modified)
- * singleton pattern is used.
+ * Representation of a voting session and its properties. The system can host
+ * several independent sessions at a time, each with a unique name, which are
+ * kept by the {@link SessionRegistry}. The static methods of this class refer
+ * to the default session, named {@link SessionRegistry#DEFAULT_SESSION}.
+ *
+ * If a journal directory is set, the session and every accepted vote are
+ * logged to a {@link BallotJournal} before being applied, and the session can
+ * be recovered after a restart via {@link SessionRegistry#recover}.
+ *
+ * The lifecycle of a session is described by its {@link SessionState}. The
+ * transitions to {@code RUNNING} and {@code CLOSED} at the start and end time
+ * are fired by a scheduler, so that checking whether the session is running is
+ * a volatile read. Components may react to transitions by registering a
+ * {@link StateListener}.
  */
 public class Session {
-	private static Session instance = null; // singleton implementation pointer
-	private static Person admin;
-
+	private static volatile Person admin;
+	private static final AtomicLong rolesVersion = new AtomicLong(); // changed after the roles of anyone may have changed
+	private static final List<StateListener> listeners = new CopyOnWriteArrayList<>();
+	private static final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "svese-session-scheduler");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final String name; // unique among the sessions of the registry
 	private SessionParameters params; // all session parameters
+	private final List<VotingPaper> allPapers = new ArrayList<>(); // papers and subpapers, indexed by their id
+	private volatile BallotJournal journal; // null if journaling is disabled
 
-	// session state
-	private boolean isReady = false; // true when the administrator finished setting up
+	// session state, changed while holding the session's lock
+	private volatile SessionState state = SessionState.INITIALIZED;
 	private final Map<Person, Boolean> approval; // stores guarantors and their approval of session parameters
+	private volatile int approvals = 0; // number of guarantors who approved
+	private ScheduledFuture<?> nextTransition; // pending start or end transition, if any
+	private volatile ElectoralRoll roll; // eligibility of the registered people while running, if it could be built
+	private volatile Map<VoteDecider, Long> rollCounts; // eligible people of the roll by decider, null for everyone, kept once closed
+	private final ReadWriteLock castLock = new ReentrantReadWriteLock(); // read to cast a ballot, write to change state
 
 	private static final Logger logger = LoggerFactory.getLogger(Session.class);
 
 	/**
-	 * Creates a new voting session. Should only be called by
-	 * {@code initializeSession}.
+	 * Creates a new voting session. Should only be called by the
+	 * {@link SessionRegistry} and while replaying a {@link BallotJournal}.
 	 */
-	private Session(SessionParameters params, List<Person> guarantors) {
+	Session(String name, SessionParameters params, List<Person> guarantors) {
+		this.name = Objects.requireNonNull(name);
 		Objects.requireNonNull(params);
 		Objects.requireNonNull(guarantors);
 		if (guarantors.size() < 1 || guarantors.contains(admin))
 			throw new IllegalArgumentException("invalid guarantor list");
 		params.checkLegality();
 		this.params = params.copy();
-		this.approval = new HashMap<>(guarantors.size());
+		this.approval = new ConcurrentHashMap<>(guarantors.size());
 		for (Person g : guarantors)
 			approval.put(g, false);
+		for (VotingPaper p : this.params.getPaperList())
+			register(p);
+	}
+
+	/**
+	 * Assigns an id to the given paper and, recursively, to its subpapers.
+	 */
+	private void register(VotingPaper p) {
+		p.attach(this, allPapers.size());
+		allPapers.add(p);
+		for (Choice c : p) {
+			VotingPaper sub = p.getSubPaper(c);
+			if (sub != null)
+				register(sub);
+		}
 	}
 
 	/**
-	 * Returns the only existing Session instance.
+	 * Returns the number of papers and subpapers of this session.
+	 */
+	int getPaperCount() {
+		return allPapers.size();
+	}
+
+	/**
+	 * Returns the paper or subpaper of this session with the given id.
+	 */
+	VotingPaper getPaper(int id) {
+		if (id < 0 || id >= allPapers.size())
+			throw new IllegalArgumentException("no paper with id " + id);
+		return allPapers.get(id);
+	}
+
+	/**
+	 * Returns the default session.
 	 *
-	 * @return The current session, or null if the session has not been initialized
-	 *         yet.
+	 * @return The default session, or null if it has not been initialized yet.
 	 */
 	public static Session getSession() {
-		return instance;
+		return SessionRegistry.getSession(SessionRegistry.DEFAULT_SESSION);
 	}
 
 	/**
-	 * Creates and initializes a new voting session. Overwrites any existing
-	 * session.
+	 * Creates and initializes a new default session. Overwrites the existing
+	 * default session, if any.
 	 *
 	 * @param params
 	 *                the session's parameters. Modification safe.
@@ -88,12 +163,160 @@ public class Session {
 	 *                 components are {@code null}.
 	 * @throws IllegalArgumentException
 	 *                 if parameters or the guarantor list are invalid.
+	 * @see SessionRegistry#initializeSession
 	 */
 	public static void initializeSession(SessionParameters params, List<Person> guarantors) {
-		if (isRunning())
-			throw new IllegalStateException("cannot initialize a running session");
-		instance = new Session(params, guarantors);
-		logger.info("Initialized " + instance);
+		SessionRegistry.initializeSession(SessionRegistry.DEFAULT_SESSION, params, guarantors);
+	}
+
+	/**
+	 * Returns the name of this session.
+	 *
+	 * @return the name.
+	 */
+	public String getName() {
+		return name;
+	}
+
+	/**
+	 * Creates a new journal for this session in the given directory and logs
+	 * the session to it.
+	 */
+	void openJournal(Path dir, List<Person> guarantors) throws IOException {
+		journal = BallotJournal.create(dir);
+		journal.logSession(this, params, guarantors);
+	}
+
+	/**
+	 * Attaches the given journal to this session, which logs to it from now on.
+	 */
+	void attachJournal(BallotJournal journal) {
+		this.journal = journal;
+	}
+
+	/**
+	 * Returns the id of the journal of this session, or {@code null} if this
+	 * session is not journaled.
+	 */
+	String getJournalId() {
+		BallotJournal j = journal;
+		return j == null ? null : j.getId();
+	}
+
+	/**
+	 * Releases the resources of a session which has been replaced.
+	 */
+	void retire() {
+		synchronized (this) {
+			if (nextTransition != null)
+				nextTransition.cancel(false);
+			nextTransition = null;
+		}
+		closeJournal();
+	}
+
+	/**
+	 * Releases the resources of a session which has not been added to the
+	 * registry, and deletes its journal, which would otherwise be recovered in
+	 * place of the session of the registry.
+	 */
+	void discard() {
+		retire();
+		BallotJournal j = journal;
+		if (j == null)
+			return;
+		try {
+			j.delete();
+		} catch (IOException e) {
+			logger.warn("Cannot delete " + j, e);
+		}
+	}
+
+	private void closeJournal() {
+		BallotJournal j = journal;
+		if (j == null)
+			return;
+		try {
+			j.close();
+		} catch (IOException e) {
+			logger.warn("Cannot close " + j, e);
+		}
+	}
+
+	/**
+	 * Casts the ballot of the given voter, made of a {@link Vote} for each of the
+	 * given papers of this session. The ballot is atomic: every vote is checked
+	 * before any is counted, either all the votes or none are accepted, and the
+	 * whole ballot is logged to the journal with a single write. May be called
+	 * concurrently. The session does not change state while a ballot is being
+	 * cast, so that a ballot accepted while running is counted before the
+	 * session closes.
+	 *
+	 * @param p
+	 *                the voter.
+	 * @param votes
+	 *                the votes, by paper. The method of each vote must be the
+	 *                same of its paper.
+	 * @throws IllegalStateException
+	 *                 if the session is not running.
+	 * @throws NullPointerException
+	 *                 if a vote is {@code null}.
+	 * @throws IllegalArgumentException
+	 *                 if a paper is not part of this session, or if a vote could
+	 *                 not be added by {@link VotingPaper#addVote}.
+	 * @throws java.io.UncheckedIOException
+	 *                 if the ballot cannot be written to the journal.
+	 */
+	public void castBallot(Person p, Map<VotingPaper, Vote> votes) {
+		castLock.readLock().lock();
+		try {
+			if (!isRunning())
+				throw new IllegalStateException("cannot add a vote to a closed election");
+			cast(p, votes);
+		} finally {
+			castLock.readLock().unlock();
+		}
+	}
+
+	/**
+	 * Casts a ballot. Must be called while holding the read lock of a running
+	 * session.
+	 */
+	private void cast(Person p, Map<VotingPaper, Vote> votes) {
+		int n = votes.size();
+		VotingPaper[] papers = votes.keySet().toArray(new VotingPaper[n]);
+		// concurrent ballots of the same voter register on the papers in the same
+		// order, so that one of them succeeds
+		Arrays.sort(papers, Comparator.comparingInt(VotingPaper::getId));
+		int[][] ballots = new int[n][];
+		for (int i = 0; i < n; i++) {
+			if (papers[i].getSession() != this)
+				throw new IllegalArgumentException("paper \"" + papers[i].getTitle() + "\" is not part of session \"" + name + "\"");
+			ballots[i] = papers[i].check(votes.get(papers[i]), p);
+		}
+		for (int i = 0; i < n; i++) {
+			if (!papers[i].register(p)) {
+				for (int j = 0; j < i; j++)
+					papers[j].unregister(p);
+				throw new IllegalArgumentException("person " + p + " has already voted for paper \"" + papers[i].getTitle() + "\"");
+			}
+		}
+		BallotJournal j = journal;
+		if (j != null) {
+			int[] ids = new int[n];
+			for (int i = 0; i < n; i++)
+				ids[i] = papers[i].getId();
+			try {
+				j.logBallot(p, ids, ballots);
+			} catch (RuntimeException e) {
+				for (VotingPaper paper : papers)
+					paper.unregister(p);
+				throw e;
+			}
+		}
+		for (int i = 0; i < n; i++)
+			papers[i].count(ballots[i]);
+		logger.debug("Cast ballot of " + p + " for " + n + " papers");
 	}
 
 	/**
@@ -132,21 +355,41 @@ public class Session {
 
 	/**
 	 * Called by the admin when the session is ready. From this call on, the
-	 * guarantors may approve the session by calling {@code approve}.
+	 * guarantors may approve the session by calling {@code approve}. Does nothing
+	 * if the session is already ready.
+	 *
+	 * @throws IllegalStateException
+	 *                 if the session is neither {@code INITIALIZED} nor
+	 *                 {@code READY}.
 	 */
-	public void setReady() {
-		isReady = true;
-		logger.info("Session set to ready");
+	public synchronized void setReady() {
+		if (state == SessionState.READY)
+			return;
+		if (state != SessionState.INITIALIZED)
+			throw new IllegalStateException("cannot set ready a session in state " + state);
+		if (journal != null)
+			journal.logReady();
+		transition(SessionState.READY);
 	}
 
 	/**
-	 * Returns {@code true} if the {@link Session} is ready to be approved,
-	 * {@code false} otherwise.
+	 * Returns {@code true} if the {@link Session} has been set ready and is not
+	 * closed, {@code false} otherwise.
 	 *
 	 * @return ready state of the Session.
 	 */
 	public boolean isReady() {
-		return isReady;
+		SessionState s = state;
+		return s != SessionState.INITIALIZED && s != SessionState.CLOSED;
+	}
+
+	/**
+	 * Returns the current state of this session.
+	 *
+	 * @return the state.
+	 */
+	public SessionState getState() {
+		return state;
 	}
 
 	/**
@@ -155,19 +398,23 @@ public class Session {
 	 *
 	 * @return {@code true} if the session is running, {@code false} otherwise.
 	 */
-	public static boolean isRunning() {
-		LocalDateTime now = LocalDateTime.now();
-		return instance != null && instance.params.getStart().isBefore(now) && instance.params.getEnd().isAfter(now) && instance.checkApproval();
+	public boolean isRunning() {
+		return state == SessionState.RUNNING;
 	}
 
 	/**
-	 * Manually closes the session. Resets the state of ready and approval.
+	 * Manually closes the session. Closing is final: a new session must be
+	 * initialized to vote again.
 	 */
-	public void forceClose() {
-		isReady = false;
-		for (Person p : approval.keySet()) {
-			approval.put(p, false);
-		}
+	public synchronized void forceClose() {
+		if (state == SessionState.CLOSED)
+			return;
+		if (journal != null)
+			journal.logClose();
+		if (nextTransition != null)
+			nextTransition.cancel(false);
+		nextTransition = null;
+		transition(SessionState.CLOSED);
 	}
 
 	/**
@@ -188,7 +435,9 @@ public class Session {
 	}
 
 	/**
-	 * Sets the given guarantor to approve the session and its parameters.
+	 * Sets the given guarantor to approve the session and its parameters. When
+	 * the last guarantor approves, the session is {@code APPROVED} and will run
+	 * from its start time.
 	 *
 	 * @param p
 	 *                the guarantor.
@@ -198,13 +447,65 @@ public class Session {
 	 *                 if the given {@link Person} is not a guarantor of the
 	 *                 session.
 	 */
-	public void approve(Person p) {
-		if (!isReady)
+	public synchronized void approve(Person p) {
+		if (!isReady())
 			throw new IllegalStateException("the session is not ready to be approved");
 		if (!approval.containsKey(p))
 			throw new IllegalArgumentException("person " + p + " is not a guarantor of the session");
+		if (approval.get(p))
+			return;
+		if (journal != null)
+			journal.logApproval(p);
 		approval.put(p, true);
+		approvals++;
 		logger.info("Session approved by " + p);
+		if (approvals == approval.size()) {
+			transition(SessionState.APPROVED);
+			advance();
+		}
+	}
+
+	/**
+	 * Restores a state logged by the {@link BallotJournal} being replayed:
+	 * {@code READY}, or {@code CLOSED} if the session was closed manually. Nothing
+	 * is logged, the listeners are not notified and no transition is scheduled:
+	 * see {@code resume}.
+	 */
+	synchronized void restoreState(SessionState s) {
+		state = s;
+	}
+
+	/**
+	 * Restores an approval logged by the {@link BallotJournal} being replayed.
+	 * When the last guarantor approves, the session is {@code APPROVED}, but no
+	 * transition is scheduled: see {@code resume}.
+	 *
+	 * @throws IllegalStateException
+	 *                 if the session is not ready to be approved.
+	 * @throws IllegalArgumentException
+	 *                 if the given {@link Person} is not a guarantor of the
+	 *                 session.
+	 */
+	synchronized void restoreApproval(Person p) {
+		if (!isReady())
+			throw new IllegalStateException("the session is not ready to be approved");
+		if (!approval.containsKey(p))
+			throw new IllegalArgumentException("person " + p + " is not a guarantor of the session");
+		if (approval.put(p, true))
+			return;
+		if (++approvals == approval.size())
+			state = SessionState.APPROVED;
+	}
+
+	/**
+	 * Fires the transitions which became due while the restored session was not
+	 * running, then schedules the next one, as for a session approved now. Called
+	 * once the replayed ballots are loaded, so that the electoral roll is built
+	 * and the listeners are notified only then.
+	 */
+	synchronized void resume() {
+		if (state == SessionState.APPROVED)
+			advance();
 	}
 
 	/**
@@ -215,17 +516,137 @@ public class Session {
 	 *         otherwise
 	 */
 	public boolean checkApproval() {
-		for (Map.Entry<Person, Boolean> a : approval.entrySet()) {
-			if (a.getValue() == false) {
-				return false;
+		return approvals == approval.size();
+	}
+
+	/**
+	 * Fires the transitions due at the current time, then schedules the next one.
+	 */
+	private synchronized void advance() {
+		nextTransition = null;
+		LocalDateTime now = LocalDateTime.now();
+		if (state == SessionState.APPROVED && !now.isBefore(params.getStart()))
+			transition(now.isBefore(params.getEnd()) ? SessionState.RUNNING : SessionState.CLOSED);
+		if (state == SessionState.RUNNING && !now.isBefore(params.getEnd()))
+			transition(SessionState.CLOSED);
+		LocalDateTime next;
+		if (state == SessionState.APPROVED)
+			next = params.getStart();
+		else if (state == SessionState.RUNNING)
+			next = params.getEnd();
+		else
+			return;
+		// woken up again if early, e.g. if the clock has been set back
+		long delay = Math.max(Duration.between(now, next).toMillis(), 1);
+		nextTransition = scheduler.schedule(this::advance, delay, TimeUnit.MILLISECONDS);
+	}
+
+	/**
+	 * Changes the state of this session and notifies the listeners. Must be
+	 * called while holding the session's lock. Waits for the ballots being cast.
+	 */
+	private void transition(SessionState to) {
+		SessionState from = state;
+		ElectoralRoll r = to == SessionState.RUNNING ? buildRoll() : to == SessionState.CLOSED ? null : roll; // before the first vote can be cast
+		Map<VoteDecider, Long> counts = rollCounts;
+		if (to == SessionState.RUNNING && r != null) {
+			counts = r.counts();
+			counts.put(null, (long) r.size());
+		}
+		castLock.writeLock().lock();
+		try {
+			roll = r;
+			rollCounts = counts;
+			state = to;
+		} finally {
+			castLock.writeLock().unlock();
+		}
+		logger.info("Session \"" + name + "\" changed state from " + from + " to " + to);
+		for (StateListener l : listeners) {
+			try {
+				l.stateChanged(this, from, to);
+			} catch (RuntimeException e) {
+				logger.error("State listener " + l + " failed", e);
 			}
 		}
-		return true;
+	}
+
+	/**
+	 * Builds the {@link ElectoralRoll} of the deciders of the papers of this
+	 * session, scanning the registered people once. Returns {@code null} if there
+	 * is no decider or the people cannot be read, in which case the deciders are
+	 * evaluated at every vote.
+	 */
+	private ElectoralRoll buildRoll() {
+		Set<VoteDecider> deciders = new HashSet<>();
+		for (VotingPaper p : allPapers)
+			if (p.getDecider() != null)
+				deciders.add(p.getDecider());
+		if (deciders.isEmpty())
+			return null;
+		try {
+			long start = System.nanoTime();
+			ElectoralRoll.Builder b = new ElectoralRoll.Builder(deciders);
+			SVeSE.getPersonRepo().scan(b::add);
+			ElectoralRoll r = b.build();
+			logger.info("Built " + r + " of session \"" + name + "\" in " + (System.nanoTime() - start) / 1_000_000 + " ms");
+			return r;
+		} catch (RuntimeException e) {
+			logger.error("Cannot build the electoral roll of session \"" + name + "\", eligibility will be decided at every vote", e);
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the {@link ElectoralRoll} of this session, or {@code null} if the
+	 * session is not running or the roll could not be built.
+	 */
+	ElectoralRoll getRoll() {
+		return roll;
+	}
+
+	/**
+	 * Registers a listener notified of the state transitions of every session.
+	 *
+	 * @param l
+	 *                the listener.
+	 */
+	public static void addStateListener(StateListener l) {
+		listeners.add(Objects.requireNonNull(l));
+	}
+
+	/**
+	 * Unregisters the given listener.
+	 *
+	 * @param l
+	 *                the listener.
+	 */
+	public static void removeStateListener(StateListener l) {
+		listeners.remove(l);
+	}
+
+	/**
+	 * Listener of the state transitions of a {@link Session}.
+	 */
+	@FunctionalInterface
+	public interface StateListener {
+		/**
+		 * Called when a session changes state, on the thread that caused the
+		 * transition and while holding the session's lock. Should not block.
+		 *
+		 * @param s
+		 *                the session.
+		 * @param from
+		 *                the previous state.
+		 * @param to
+		 *                the new state.
+		 */
+		void stateChanged(Session s, SessionState from, SessionState to);
 	}
 
 	/**
 	 * Returns a {@link Collection} containing the roles of the given {@link Person}
-	 * for the current Session.
+	 * in any of the sessions of the {@link SessionRegistry}.
 	 *
 	 * @param p
 	 *                the person to inspect.
@@ -235,28 +656,62 @@ public class Session {
 		Collection<Role> res = new ArrayList<>();
 		if (admin.equals(p))
 			res.add(Role.ADMIN);
-		if (instance != null) {
-			if (instance.approval.containsKey(p))
+		for (Session s : SessionRegistry.getSessions()) {
+			if (s.isGuarantor(p)) {
 				res.add(Role.GUARANTOR);
+				break;
+			}
 		}
 		return res;
 	}
 
+	/**
+	 * Returns {@code true} if the given {@link Person} is a guarantor of this
+	 * session, {@code false} otherwise.
+	 *
+	 * @param p
+	 *                the person to inspect.
+	 * @return {@code true} if the person is a guarantor.
+	 */
+	public boolean isGuarantor(Person p) {
+		return approval.containsKey(p);
+	}
+
 	/**
 	 * Sets the session administrator to the given {@link Person}.
 	 *
 	 * @param administrator
 	 *                the admin.
 	 * @throws IllegalStateException
-	 *                 if trying to change admin when the session is initialized.
+	 *                 if trying to change admin when a session is initialized.
 	 */
 	public static void setAdmin(Person administrator) {
-		if (getSession() != null)
-			throw new IllegalStateException("cannot change admin once the session is initialized");
+		if (!SessionRegistry.getSessions().isEmpty())
+			throw new IllegalStateException("cannot change admin once a session is initialized");
 		admin = Objects.requireNonNull(administrator);
+		rolesChanged();
 		logger.info("Session administrator set to " + administrator);
 	}
 
+	/**
+	 * Returns the version of the roles returned by {@link #getRoles}, which changes
+	 * whenever the admin is set or a session is added to or replaced in the
+	 * {@link SessionRegistry}. Roles read after this method returned the same
+	 * version are still valid.
+	 *
+	 * @return the version of the roles.
+	 */
+	public static long getRolesVersion() {
+		return rolesVersion.get();
+	}
+
+	/**
+	 * Changes the version of the roles. Must be called after the change.
+	 */
+	static void rolesChanged() {
+		rolesVersion.incrementAndGet();
+	}
+
 	/**
 	 * Returns the number of registered {@link Person}s that can vote according to
 	 * the given {@link VoteDecider}.
@@ -266,13 +721,76 @@ public class Session {
 	 * @return number of people that can vote.
 	 */
 	public long howManyEligible(VoteDecider decider) {
+		return howManyEligible(Collections.singletonList(decider)).get(decider);
+	}
+
+	/**
+	 * Returns the number of registered {@link Person}s that can vote according to
+	 * each of the given {@link VoteDecider}s. Once the session has started, the
+	 * eligible people are those of its {@link ElectoralRoll}, whose counts are
+	 * kept after the session is closed and the roll is dropped. Otherwise,
+	 * deciders with a {@link VoteDecider#toSpecification specification} are
+	 * counted by the database. Deciders with a {@link VoteDecider#toFilter filter}
+	 * are evaluated in Java on the people it selects; the others on every person,
+	 * scanning the people once for all of them. Equal deciders are only evaluated
+	 * once, and the counts are kept until a person is written or the day changes.
+	 *
+	 * @param deciders
+	 *                the {@link VoteDecider}s to use. {@code null} lets anyone vote.
+	 * @return number of people that can vote, by decider.
+	 */
+	public Map<VoteDecider, Long> howManyEligible(Collection<VoteDecider> deciders) {
 		PersonRepository personRepo = SVeSE.getPersonRepo();
-		List<Person> l = personRepo.findAll();
-		long count = 0;
-		for (Person p : l)
-			if (decider.canVote(p))
-				count++;
-		return count;
+		Map<VoteDecider, Long> res = new HashMap<>();
+		List<VoteDecider> inMemory = new ArrayList<>();
+		Map<VoteDecider, Long> rc = rollCounts;
+		long version = EligibilityCache.version();
+		long day = DayClock.epochDay();
+		for (VoteDecider d : new LinkedHashSet<>(deciders)) {
+			long count = rc == null ? -1 : rc.getOrDefault(d, -1L);
+			if (count < 0)
+				count = EligibilityCache.get(d, version, day);
+			if (count >= 0) {
+				res.put(d, count);
+				continue;
+			}
+			if (d == null) {
+				count = personRepo.count();
+				res.put(null, count);
+				EligibilityCache.put(null, version, day, count);
+				continue;
+			}
+			Specification<Person> spec = d.toSpecification();
+			Specification<Person> filter = spec == null ? d.toFilter() : null;
+			if (spec != null) {
+				count = personRepo.count(spec);
+			} else if (filter != null) {
+				long[] filtered = { 0 };
+				personRepo.scan(filter, p -> {
+					if (d.canVote(p))
+						filtered[0]++;
+				});
+				count = filtered[0];
+			} else {
+				inMemory.add(d);
+				continue;
+			}
+			res.put(d, count);
+			EligibilityCache.put(d, version, day, count);
+		}
+		if (!inMemory.isEmpty()) {
+			long[] counts = new long[inMemory.size()];
+			personRepo.scan(p -> {
+				for (int i = 0; i < counts.length; i++)
+					if (inMemory.get(i).canVote(p))
+						counts[i]++;
+			});
+			for (int i = 0; i < counts.length; i++) {
+				res.put(inMemory.get(i), counts[i]);
+				EligibilityCache.put(inMemory.get(i), version, day, counts[i]);
+			}
+		}
+		return res;
 	}
 
 	/**
@@ -418,7 +936,7 @@ public class Session {
 
 	@Override
 	public String toString() {
-		return "Session[admin=" + admin + ", isReady=" + isReady + ", approval=" + approvalToString() + ",\nparams=" + params + "]";
+		return "Session[\"" + name + "\", admin=" + admin + ", state=" + state + ", approval=" + approvalToString() + ",\nparams=" + params + "]";
 	}
 
 }
@@ -0,0 +1,211 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import org.miniblex.svese.SVeSE;
+import org.miniblex.svese.model.Session.SessionParameters;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Registry of the voting {@link Session}s hosted by the system. Sessions are
+ * isolated from each other: each one has its own papers, guarantors, state,
+ * lock and journal, and is identified by a unique name. The sessions share the
+ * registered {@link Person}s and the administrator.
+ *
+ * If a journal directory is set, every session is logged to a journal in the
+ * subdirectory named after the session.
+ */
+public final class SessionRegistry {
+	/**
+	 * Name of the default session, the one referred to by the static methods of
+	 * {@link Session}.
+	 */
+	public static final String DEFAULT_SESSION = "default";
+
+	private static final Pattern VALID_NAME = Pattern.compile("[A-Za-z0-9_-]{1,64}"); // also a valid directory name
+	private static final Map<String, Session> sessions = new ConcurrentSkipListMap<>(); // sorted by name
+	private static volatile Path journalDir; // null if journaling is disabled
+
+	private static final Logger logger = LoggerFactory.getLogger(SessionRegistry.class);
+
+	private SessionRegistry() {
+	}
+
+	/**
+	 * Returns the session with the given name.
+	 *
+	 * @param name
+	 *                the name of the session.
+	 * @return the session, or {@code null} if there is no session with that name.
+	 */
+	public static Session getSession(String name) {
+		return sessions.get(name);
+	}
+
+	/**
+	 * Returns the sessions of this registry, sorted by name.
+	 *
+	 * @return the sessions. Not modifiable.
+	 */
+	public static List<Session> getSessions() {
+		return List.copyOf(sessions.values());
+	}
+
+	/**
+	 * Returns {@code true} if the given string can be the name of a session:
+	 * between 1 and 64 letters, digits, underscores or dashes.
+	 *
+	 * @param name
+	 *                the string to check.
+	 * @return {@code true} if the name is valid.
+	 */
+	public static boolean isValidName(String name) {
+		return name != null && VALID_NAME.matcher(name).matches();
+	}
+
+	/**
+	 * Creates and initializes a new voting session with the given name.
+	 * Overwrites the existing session with the same name, if any.
+	 *
+	 * @param name
+	 *                the name of the session.
+	 * @param params
+	 *                the session's parameters. Modification safe.
+	 * @param guarantors
+	 *                the {@link List} of session guarantors. The list must contain
+	 *                at least one {@link Person} and must not contain the admin.
+	 * @return the new session.
+	 * @throws IllegalStateException
+	 *                 if the session with the same name is running.
+	 * @throws NullPointerException
+	 *                 if {@code guarantors} or {@code params} or any of its
+	 *                 components are {@code null}.
+	 * @throws IllegalArgumentException
+	 *                 if the name, the parameters or the guarantor list are
+	 *                 invalid.
+	 * @throws UncheckedIOException
+	 *                 if the journal of the session cannot be created.
+	 */
+	public static Session initializeSession(String name, SessionParameters params, List<Person> guarantors) {
+		if (!isValidName(name))
+			throw new IllegalArgumentException("invalid session name \"" + name + "\"");
+		checkNotRunning(sessions.get(name));
+		Session s = new Session(name, params, guarantors);
+		Path dir = journalDir;
+		if (dir != null) {
+			try {
+				s.openJournal(dir.resolve(name), guarantors);
+			} catch (IOException e) {
+				throw new UncheckedIOException("cannot create the session journal", e);
+			}
+		}
+		Session[] old = new Session[1];
+		try {
+			sessions.compute(name, (k, v) -> {
+				checkNotRunning(v);
+				old[0] = v;
+				return s;
+			});
+		} catch (RuntimeException e) {
+			s.discard();
+			throw e;
+		}
+		Session.rolesChanged();
+		if (old[0] != null)
+			old[0].retire();
+		logger.info("Initialized " + s);
+		return s;
+	}
+
+	/**
+	 * Retires and removes every session. Used by tests, which share the
+	 * registry.
+	 */
+	static void clear() {
+		for (Session s : sessions.values())
+			s.retire();
+		sessions.clear();
+		Session.rolesChanged();
+	}
+
+	private static void checkNotRunning(Session s) {
+		if (s != null && s.isRunning())
+			throw new IllegalStateException("cannot initialize a running session");
+	}
+
+	/**
+	 * Sets the directory of the session journals. From now on, every initialized
+	 * session is logged to a new journal in the subdirectory of this directory
+	 * named after the session.
+	 *
+	 * @param dir
+	 *                the journal directory, or {@code null} to disable journaling.
+	 */
+	public static void setJournalDirectory(Path dir) {
+		journalDir = dir;
+	}
+
+	/**
+	 * Recovers the latest journal of every session logged in the journal
+	 * directory, replaying its state and votes, and adds the sessions to this
+	 * registry. Does nothing if journaling is disabled.
+	 *
+	 * @throws IllegalStateException
+	 *                 if a session has already been initialized.
+	 * @throws UncheckedIOException
+	 *                 if a journal cannot be read.
+	 */
+	public static void recover() {
+		Path dir = journalDir;
+		if (dir == null || !Files.isDirectory(dir))
+			return;
+		if (!sessions.isEmpty())
+			throw new IllegalStateException("cannot recover the sessions: a session is already initialized");
+		PersonRepository personRepo = SVeSE.getPersonRepo();
+		try (Stream<Path> dirs = Files.list(dir)) {
+			for (Path sessionDir : (Iterable<Path>) dirs.sorted()::iterator) {
+				String name = sessionDir.getFileName().toString();
+				if (!Files.isDirectory(sessionDir) || !isValidName(name))
+					continue;
+				Path journal = BallotJournal.latest(sessionDir);
+				if (journal == null)
+					continue;
+				Session s = BallotJournal.replay(journal, name, ssn -> personRepo.findById(ssn).orElse(null));
+				if (s != null) {
+					sessions.put(name, s);
+					Session.rolesChanged();
+					logger.info("Recovered " + s);
+				}
+			}
+		} catch (IOException e) {
+			throw new UncheckedIOException("cannot recover the session journals", e);
+		}
+	}
+
+}
@@ -0,0 +1,50 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+/**
+ * States of the lifecycle of a {@link Session}. A session goes through the
+ * states in order, and may be closed from any state.
+ */
+public enum SessionState {
+	/**
+	 * The session has been initialized and the administrator is reviewing it.
+	 */
+	INITIALIZED,
+
+	/**
+	 * The administrator set the session ready, and the guarantors may approve it.
+	 */
+	READY,
+
+	/**
+	 * Every guarantor approved the session, which waits for its start time.
+	 */
+	APPROVED,
+
+	/**
+	 * The session is between its start and end time: votes are accepted.
+	 */
+	RUNNING,
+
+	/**
+	 * The session reached its end time or was closed by the administrator. This
+	 * state is final.
+	 */
+	CLOSED
+}
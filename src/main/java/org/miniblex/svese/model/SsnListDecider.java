@@ -0,0 +1,93 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.Collection;
+import java.util.Set;
+
+import org.springframework.data.jpa.domain.Specification;
+
+/**
+ * Implementation of {@link VoteDecider} which lets vote the people whose SSN
+ * is on a list. Negated, it excludes the people on the list. A list of up to
+ * {@value #MAX_QUERY_SIZE} SSNs is counted by the database; a longer one is
+ * only tested in Java, as it would not fit a query.
+ *
+ * Immutable.
+ */
+public class SsnListDecider implements VoteDecider {
+	private static final long serialVersionUID = 1L;
+	/**
+	 * Largest list which is expressed as a query.
+	 */
+	public static final int MAX_QUERY_SIZE = 1000;
+
+	private final Set<String> ssns;
+
+	/**
+	 * Constructs a new {@link SsnListDecider} of the given SSNs.
+	 *
+	 * @param ssns
+	 *                the SSNs of the people who can vote.
+	 */
+	public SsnListDecider(Collection<String> ssns) {
+		this.ssns = Set.copyOf(ssns);
+	}
+
+	@Override
+	public boolean canVote(Person p) {
+		return p != null && ssns.contains(p.getSsn());
+	}
+
+	@Override
+	public Specification<Person> toSpecification() {
+		if (ssns.size() > MAX_QUERY_SIZE)
+			return null;
+		Set<String> in = ssns;
+		return (root, query, cb) -> in.isEmpty() ? cb.disjunction() : root.get("ssn").in(in);
+	}
+
+	@Override
+	public int getCost() {
+		return 4;
+	}
+
+	@Override
+	public int hashCode() {
+		return ssns.hashCode();
+	}
+
+	/**
+	 * Two {@link SsnListDecider}s are defined to be equals if they have the same
+	 * SSNs.
+	 */
+	@Override
+	public boolean equals(Object obj) {
+		if (this == obj)
+			return true;
+		if (!(obj instanceof SsnListDecider))
+			return false;
+		return ssns.equals(((SsnListDecider) obj).ssns);
+	}
+
+	@Override
+	public String toString() {
+		return "SsnListDecider[size=" + ssns.size() + "]";
+	}
+
+}
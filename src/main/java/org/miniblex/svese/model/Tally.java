@@ -0,0 +1,83 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Counts the votes of a {@link VotingPaper} as they are added, and ranks its
+ * {@link Choice}s. The way votes are counted depends on the
+ * {@link ElectionMethod} of the paper.
+ *
+ * Thread safe: votes may be counted concurrently.
+ */
+interface Tally {
+
+	/**
+	 * Counts the given vote.
+	 *
+	 * @param ballot
+	 *                the vote, as returned by {@link VotingPaper#encode}.
+	 */
+	void count(int[] ballot);
+
+	/**
+	 * Replaces the counts with those of the given stored votes, counted in
+	 * parallel on the given pool. Must not be called while votes are counted.
+	 *
+	 * @param ballots
+	 *                the votes.
+	 * @param pool
+	 *                the pool counting the votes.
+	 */
+	void recount(CompactBallots ballots, ForkJoinPool pool);
+
+	/**
+	 * Returns the score of every choice, by choice index. The higher the score,
+	 * the better the choice ranks.
+	 *
+	 * @return the scores.
+	 */
+	long[] scores();
+
+	/**
+	 * Returns a new tally for a paper with the given method, number of choices
+	 * and number of seats.
+	 *
+	 * @param method
+	 *                the election method of the paper.
+	 * @param choices
+	 *                the number of choices of the paper.
+	 * @param seats
+	 *                the number of choices to elect.
+	 * @return the tally.
+	 */
+	static Tally of(ElectionMethod method, int choices, int seats) {
+		switch (method) {
+		case SCHULZE:
+		case RANKED_PAIRS:
+			return new PairwiseTally(method, choices);
+		case IRV:
+		case STV:
+			return new RunoffTally(method, choices, seats);
+		default:
+			return new ScoreTally(method, choices);
+		}
+	}
+
+}
@@ -17,13 +17,24 @@
 
 package org.miniblex.svese.model;
 
+import java.io.Serializable;
+
+import org.springframework.data.jpa.domain.Specification;
+
 /**
  * Every {@link VotingPaper} contains a {@link VoteDecider}, which lets or
- * denies the right to vote to a user through the method canVote.
+ * denies the right to vote to a user through the method canVote. Deciders can
+ * be combined with {@link #and}, {@link #or} and {@link #negate}: a
+ * combination evaluates its cheapest operands first, and is counted by the
+ * database as far as its operands can be.
+ *
+ * Serializable, as it is part of the session definition stored in the
+ * {@link BallotJournal}, which only reads back the deciders it knows: a new
+ * decider must be added to them.
  *
  * Immutable.
  */
-public interface VoteDecider {
+public interface VoteDecider extends Serializable {
 	/**
 	 * Decides if the given {@link Person} can vote in the {@link VotingPaper} this
 	 * {@link VoteDecider} belongs to. Returns false if the given Person is
@@ -34,4 +45,77 @@ public interface VoteDecider {
 	 * @return {@code true} if the person can vote, {@code false} otherwise.
 	 */
 	boolean canVote(Person p);
+
+	/**
+	 * Returns a JPA {@link Specification} selecting the same {@link Person}s as
+	 * {@link #canVote}, so that they can be counted by the database instead of
+	 * being loaded and tested one by one. The predicate must never be unknown
+	 * ({@code NULL}), so that it can be negated: a nullable attribute must be
+	 * tested with {@code IS NOT NULL} first. The default implementation returns
+	 * {@code null}: deciders which cannot be expressed as a query are only
+	 * evaluated in Java.
+	 *
+	 * @return the specification of the people who can vote, or {@code null}.
+	 */
+	default Specification<Person> toSpecification() {
+		return null;
+	}
+
+	/**
+	 * Returns a JPA {@link Specification} selecting every {@link Person} who can
+	 * vote and possibly others, which {@link #canVote} must then reject: the
+	 * people to test in Java are only those the database selects. The default
+	 * implementation returns {@link #toSpecification}.
+	 *
+	 * @return the specification of a superset of the people who can vote, or
+	 *         {@code null} if every person must be tested.
+	 */
+	default Specification<Person> toFilter() {
+		return toSpecification();
+	}
+
+	/**
+	 * Returns an estimate of the cost of {@link #canVote}, in units of about a
+	 * comparison of two numbers, so that the cheapest deciders of a combination
+	 * are evaluated first. The default implementation returns 10.
+	 *
+	 * @return the cost, positive.
+	 */
+	default int getCost() {
+		return 10;
+	}
+
+	/**
+	 * Returns a decider which lets vote the people both this and the given
+	 * decider let vote.
+	 *
+	 * @param other
+	 *                the other decider.
+	 * @return the combined decider.
+	 */
+	default VoteDecider and(VoteDecider other) {
+		return new AndDecider(this, other);
+	}
+
+	/**
+	 * Returns a decider which lets vote the people this or the given decider
+	 * let vote.
+	 *
+	 * @param other
+	 *                the other decider.
+	 * @return the combined decider.
+	 */
+	default VoteDecider or(VoteDecider other) {
+		return new OrDecider(this, other);
+	}
+
+	/**
+	 * Returns a decider which lets vote the people this decider does not let
+	 * vote.
+	 *
+	 * @return the negated decider.
+	 */
+	default VoteDecider negate() {
+		return new NotDecider(this);
+	}
 }
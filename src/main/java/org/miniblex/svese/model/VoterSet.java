@@ -0,0 +1,251 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Set of the SSNs of the people who voted in a {@link VotingPaper}, which
+ * keeps no reference to {@link Person}s.
+ *
+ * An SSN of up to 16 ASCII characters is stored as a key of two longs, which
+ * encodes it exactly (7 bits per character and its length), in an
+ * open-addressing table indexed by a 64-bit hash of the key: 16 bytes per
+ * voter. Any other SSN is kept as a string in an exact fallback set.
+ *
+ * Thread safe: the set is split in stripes, selected by the hash of the key,
+ * each guarded by its own lock. {@code add} is an atomic check-then-insert.
+ */
+final class VoterSet {
+	private static final int STRIPES = 64; // power of 2
+	private static final int MAX_PACKED_LENGTH = 16;
+	private static final long OCCUPIED = 1L << 63; // set in the low part of every key, so that 0 marks free slots
+
+	private final Stripe[] stripes = new Stripe[STRIPES];
+
+	/**
+	 * Constructs an empty set.
+	 */
+	VoterSet() {
+		for (int i = 0; i < STRIPES; i++)
+			stripes[i] = new Stripe();
+	}
+
+	/**
+	 * Adds the given SSN to this set, if not already present.
+	 *
+	 * @return {@code true} if the SSN was not present.
+	 */
+	boolean add(String ssn) {
+		long hi = high(ssn);
+		if (hi < 0)
+			return stripes[(int) mix(ssn.hashCode()) & (STRIPES - 1)].addExact(ssn);
+		long lo = low(ssn);
+		long h = mix(hi ^ lo);
+		return stripes[(int) (h >>> 58)].add(hi, lo, h);
+	}
+
+	/**
+	 * Returns {@code true} if the given SSN is in this set.
+	 */
+	boolean contains(String ssn) {
+		long hi = high(ssn);
+		if (hi < 0)
+			return stripes[(int) mix(ssn.hashCode()) & (STRIPES - 1)].containsExact(ssn);
+		long lo = low(ssn);
+		long h = mix(hi ^ lo);
+		return stripes[(int) (h >>> 58)].contains(hi, lo, h);
+	}
+
+	/**
+	 * Removes the given SSN from this set.
+	 *
+	 * @return {@code true} if the SSN was present.
+	 */
+	boolean remove(String ssn) {
+		long hi = high(ssn);
+		if (hi < 0)
+			return stripes[(int) mix(ssn.hashCode()) & (STRIPES - 1)].removeExact(ssn);
+		long lo = low(ssn);
+		long h = mix(hi ^ lo);
+		return stripes[(int) (h >>> 58)].remove(hi, lo, h);
+	}
+
+	/**
+	 * Returns the number of SSNs in this set.
+	 */
+	long size() {
+		long size = 0;
+		for (Stripe s : stripes)
+			size += s.size();
+		return size;
+	}
+
+	/**
+	 * Returns the first 9 characters of the given SSN packed in a long, or -1 if
+	 * the SSN cannot be packed.
+	 */
+	private static long high(String ssn) {
+		int len = ssn.length();
+		if (len > MAX_PACKED_LENGTH)
+			return -1;
+		long res = 0;
+		for (int i = 0; i < Math.min(len, 9); i++) {
+			char c = ssn.charAt(i);
+			if (c >= 128)
+				return -1;
+			res |= (long) c << (7 * i);
+		}
+		for (int i = 9; i < len; i++)
+			if (ssn.charAt(i) >= 128)
+				return -1;
+		return res;
+	}
+
+	/**
+	 * Returns the characters after the ninth of a packable SSN and its length
+	 * packed in a long.
+	 */
+	private static long low(String ssn) {
+		int len = ssn.length();
+		long res = OCCUPIED | ((long) len << 49);
+		for (int i = 9; i < len; i++)
+			res |= (long) ssn.charAt(i) << (7 * (i - 9));
+		return res;
+	}
+
+	/**
+	 * Finalization step of MurmurHash3, spreading every bit of the input on the
+	 * whole output.
+	 */
+	private static long mix(long h) {
+		h ^= h >>> 33;
+		h *= 0xff51afd7ed558ccdL;
+		h ^= h >>> 33;
+		h *= 0xc4ceb9fe1a85ec53L;
+		h ^= h >>> 33;
+		return h;
+	}
+
+	/**
+	 * A part of the set: a linear probing table of keys, and the fallback set.
+	 */
+	private static final class Stripe {
+		private long[] his = new long[16];
+		private long[] los = new long[16]; // 0 if the slot is free
+		private int size = 0;
+		private Set<String> exact = null; // SSNs which cannot be packed, allocated when needed
+
+		private synchronized boolean add(long hi, long lo, long h) {
+			int mask = los.length - 1;
+			int i = (int) h & mask;
+			while (los[i] != 0) {
+				if (los[i] == lo && his[i] == hi)
+					return false;
+				i = (i + 1) & mask;
+			}
+			his[i] = hi;
+			los[i] = lo;
+			if (++size > los.length * 3 / 4)
+				resize();
+			return true;
+		}
+
+		private synchronized boolean contains(long hi, long lo, long h) {
+			return find(hi, lo, h) >= 0;
+		}
+
+		private synchronized boolean remove(long hi, long lo, long h) {
+			int i = find(hi, lo, h);
+			if (i < 0)
+				return false;
+			// backward shift deletion: moves back the following keys which would not be
+			// found anymore once slot i is freed
+			int mask = los.length - 1;
+			int j = i;
+			while (true) {
+				j = (j + 1) & mask;
+				if (los[j] == 0)
+					break;
+				int home = (int) mix(his[j] ^ los[j]) & mask;
+				if (((j - home) & mask) >= ((j - i) & mask)) {
+					his[i] = his[j];
+					los[i] = los[j];
+					i = j;
+				}
+			}
+			his[i] = 0;
+			los[i] = 0;
+			size--;
+			return true;
+		}
+
+		private int find(long hi, long lo, long h) {
+			int mask = los.length - 1;
+			int i = (int) h & mask;
+			while (los[i] != 0) {
+				if (los[i] == lo && his[i] == hi)
+					return i;
+				i = (i + 1) & mask;
+			}
+			return -1;
+		}
+
+		private void resize() {
+			long[] oldHis = his;
+			long[] oldLos = los;
+			his = new long[oldLos.length * 2];
+			los = new long[oldLos.length * 2];
+			int mask = los.length - 1;
+			for (int k = 0; k < oldLos.length; k++) {
+				if (oldLos[k] == 0)
+					continue;
+				int i = (int) mix(oldHis[k] ^ oldLos[k]) & mask;
+				while (los[i] != 0)
+					i = (i + 1) & mask;
+				his[i] = oldHis[k];
+				los[i] = oldLos[k];
+			}
+		}
+
+		private synchronized boolean addExact(String ssn) {
+			if (exact == null)
+				exact = new HashSet<>();
+			return exact.add(ssn);
+		}
+
+		private synchronized boolean containsExact(String ssn) {
+			return exact != null && exact.contains(ssn);
+		}
+
+		private synchronized boolean removeExact(String ssn) {
+			return exact != null && exact.remove(ssn);
+		}
+
+		private synchronized int size() {
+			return size + (exact == null ? 0 : exact.size());
+		}
+	}
+
+	@Override
+	public String toString() {
+		return "VoterSet[size=" + size() + "]";
+	}
+
+}
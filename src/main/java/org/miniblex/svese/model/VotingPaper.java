@@ -22,14 +22,20 @@ import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToLongFunction;
+import java.util.stream.Collectors;
 
+import org.miniblex.svese.SVeSE;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
 
 /**
  * Implementation of a voting paper, which stores possible choices and, when
@@ -50,16 +56,31 @@ import org.slf4j.LoggerFactory;
  * {@code copy} returns a copy of this VotingPaper with the mutable state
  * removed.
  *
- * TODO: result caching system (persistent?)
+ * Thread safe: votes may be added concurrently by different request threads.
+ *
+ * The votes are counted by a {@link Tally}, updated on every added vote, so
+ * that generating the {@link Results} does not depend on the number of votes.
+ *
+ * Once the session of the paper is closed its results cannot change: they are
+ * generated once and kept in memory. The results of journaled sessions are also
+ * stored as {@link PaperResults}, so that they are not generated again after a
+ * restart.
  */
 public class VotingPaper implements Iterable<Choice> {
 	private final String title;
 	private final Map<Choice, VotingPaper> choices; // the keys are the available choices, the values are the optional suboptions
 							// papers
-	private final List<Vote> votes = new LinkedList<>();
+	private final List<Choice> choiceList; // the choices in a fixed order: the position of a choice is its index
+	private final Map<Choice, Integer> choiceIndex;
+	private final Tally tally; // counts the votes as they are added
+	private final CompactBallots ballots; // the votes, as choice indexes
 	private final ElectionMethod method;
+	private final int seats; // choices to elect, more than one only with STV
 	private final VoteDecider decider;
-	private final Set<Person> hasVoted = new HashSet<>();
+	private final VoterSet hasVoted = new VoterSet(); // SSNs of the voters, add is an atomic check-then-insert
+	private Session session; // the session this paper belongs to, if any
+	private int id = -1; // the id of this paper in its session
+	private volatile Results closedResults; // generated once the session is closed
 
 	private static final Logger logger = LoggerFactory.getLogger(VotingPaper.class);
 
@@ -84,6 +105,31 @@ public class VotingPaper implements Iterable<Choice> {
 	 *                 there are zero choices.
 	 */
 	public VotingPaper(String title, Map<Choice, VotingPaper> choices, ElectionMethod method, VoteDecider decider) {
+		this(title, choices, method, decider, 1);
+	}
+
+	/**
+	 * Constructs a new {@link VotingPaper} electing the given number of choices,
+	 * with the {@link ElectionMethod#STV} method.
+	 *
+	 * @param title
+	 *                the title of this VotingPaper.
+	 * @param choices
+	 *                choices for the election represented by this paper, mapped to
+	 *                {@code null}.
+	 * @param method
+	 *                the method used by the election of this paper.
+	 * @param decider
+	 *                decides if a person can vote for this VotingPaper. Set it to
+	 *                {@code null} if anyone can vote.
+	 * @param seats
+	 *                the number of choices to elect.
+	 * @throws IllegalArgumentException
+	 *                 for the same reasons as the constructor without seats, if
+	 *                 seats is not between 1 and the number of choices, or if it
+	 *                 is not 1 and the method is not STV.
+	 */
+	public VotingPaper(String title, Map<Choice, VotingPaper> choices, ElectionMethod method, VoteDecider decider, int seats) {
 		if (method != ElectionMethod.PREFERENCED)
 			for (VotingPaper sub : choices.values())
 				if (sub != null)
@@ -93,7 +139,16 @@ public class VotingPaper implements Iterable<Choice> {
 		this.title = Objects.requireNonNull(title);
 		this.choices = copyChoiceMap(Objects.requireNonNull(choices));
 		this.method = Objects.requireNonNull(method);
+		if (seats < 1 || seats > choices.size() || (seats != 1 && method != ElectionMethod.STV))
+			throw new IllegalArgumentException("cannot elect " + seats + " out of " + choices.size() + " choices with election method " + method);
+		this.seats = seats;
 		this.decider = decider;
+		this.choiceList = List.copyOf(this.choices.keySet());
+		this.choiceIndex = new HashMap<>(choiceList.size());
+		this.ballots = new CompactBallots(method, choiceList.size());
+		this.tally = Tally.of(method, choiceList.size(), seats);
+		for (int i = 0; i < choiceList.size(); i++)
+			choiceIndex.put(choiceList.get(i), i);
 	}
 
 	/**
@@ -105,16 +160,72 @@ public class VotingPaper implements Iterable<Choice> {
 		return title;
 	}
 
+	/**
+	 * Returns the number of {@link Choice}s elected by this {@link VotingPaper}:
+	 * the ones with the highest score in the results. More than one only with the
+	 * {@link ElectionMethod#STV} method.
+	 *
+	 * @return the number of seats.
+	 */
+	public int getSeats() {
+		return seats;
+	}
+
+	/**
+	 * Returns the {@link VoteDecider} of this {@link VotingPaper}, or {@code null}
+	 * if anyone can vote.
+	 *
+	 * @return the decider.
+	 */
+	public VoteDecider getDecider() {
+		return decider;
+	}
+
+	/**
+	 * Makes this paper part of the given session, with the given id. Called by
+	 * {@link Session} when it is created.
+	 */
+	void attach(Session s, int id) {
+		this.session = s;
+		this.id = id;
+	}
+
+	/**
+	 * Returns the {@link Session} this paper belongs to.
+	 *
+	 * @return the session, or {@code null} if this paper is not part of a session.
+	 */
+	public Session getSession() {
+		return session;
+	}
+
+	/**
+	 * Returns the id of this paper in its {@link Session}, or -1 if this paper does
+	 * not belong to a session.
+	 */
+	int getId() {
+		return id;
+	}
+
 	/**
 	 * Returns {@code true} if the given {@link Person} can vote in this
-	 * {@link VotingPaper}, {@code false} otherwise.
+	 * {@link VotingPaper}, {@code false} otherwise. While the session is running,
+	 * the people who could vote when it started are looked up in its
+	 * {@link ElectoralRoll}; the decider is only asked about the others, who may
+	 * have become eligible or registered since.
 	 *
 	 * @param p
 	 *                the person which may be able to vote.
 	 * @return {@code true} if the person can vote, {@code false} otherwise.
 	 */
 	public boolean canVote(Person p) {
-		return decider == null ? p != null : decider.canVote(p);
+		if (decider == null || p == null)
+			return p != null;
+		Session s = session;
+		ElectoralRoll roll = s == null ? null : s.getRoll();
+		if (roll != null && roll.isEligible(decider, p.getSsn()))
+			return true;
+		return decider.canVote(p);
 	}
 
 	/**
@@ -126,7 +237,18 @@ public class VotingPaper implements Iterable<Choice> {
 	 * @return {@code true} if the person has voted, {@code false} otherwise.
 	 */
 	public boolean hasVoted(Person p) {
-		return hasVoted.contains(p);
+		return hasVoted.contains(p.getSsn());
+	}
+
+	/**
+	 * Returns the number of votes counted so far in this {@link VotingPaper}.
+	 * Lock free, so that it may be polled while the session is running, and
+	 * reveals nothing about the content of the votes.
+	 *
+	 * @return the number of votes.
+	 */
+	public long getVoteCount() {
+		return ballots.size();
 	}
 
 	/**
@@ -155,7 +277,9 @@ public class VotingPaper implements Iterable<Choice> {
 	/**
 	 * Adds the given {@link Vote} by the given {@link Person} to the election of
 	 * this {@link VotingPaper}. This is the only time a Person and their vote are
-	 * associated.
+	 * associated. May be called concurrently: a person is registered as a voter
+	 * atomically, so that only one of two concurrent votes by the same person is
+	 * accepted.
 	 *
 	 * @param v
 	 *                the vote. Its method must be the same of this VotingPaper.
@@ -165,35 +289,282 @@ public class VotingPaper implements Iterable<Choice> {
 	 *                 if the election is closed.
 	 * @throws IllegalArgumentException
 	 *                 if the method of the vote is not the same of this
-	 *                 VotingPaper, if the given person cannot vote for this
-	 *                 VotingPaper or if they have already voted.
+	 *                 VotingPaper, if the vote contains choices which are not
+	 *                 part of this VotingPaper, if the given person cannot vote
+	 *                 for this VotingPaper or if they have already voted.
+	 * @throws java.io.UncheckedIOException
+	 *                 if the vote cannot be written to the session journal.
 	 */
 	public void addVote(Vote v, Person p) {
-		if (!Session.isRunning())
+		Session s = session;
+		if (s == null)
 			throw new IllegalStateException("cannot add a vote to a closed election");
+		s.castBallot(p, Map.of(this, Objects.requireNonNull(v)));
+	}
+
+	/**
+	 * Checks that the given {@link Vote} by the given {@link Person} can be added
+	 * to this paper, and encodes it.
+	 *
+	 * @return the vote, as returned by {@code encode}.
+	 * @throws IllegalArgumentException
+	 *                 for the same reasons as {@code addVote}, except if the
+	 *                 person has already voted.
+	 */
+	int[] check(Vote v, Person p) {
 		Objects.requireNonNull(v);
-		if (v.getMethod() != this.getMethod())
+		if (v.getMethod() != this.getMethod().getVoteMethod())
 			throw new IllegalArgumentException("vote method " + v.getMethod() + " not compatible with election method" + this.getMethod() + " of paper \"" + getTitle() + "\"");
 		if (!canVote(p))
 			throw new IllegalArgumentException("person " + p + " cannot vote for paper " + getTitle());
-		if (hasVoted(p))
-			throw new IllegalArgumentException("person " + p + " has already voted for paper \"" + getTitle() + "\"");
-		votes.add(v);
-		hasVoted.add(p);
-		logger.debug("Added vote: " + v + " by " + p);
+		return encode(v);
+	}
+
+	/**
+	 * Registers the given {@link Person} as a voter of this paper.
+	 *
+	 * @return {@code false} if the person has already voted.
+	 */
+	boolean register(Person p) {
+		return hasVoted.add(p.getSsn());
+	}
+
+	/**
+	 * Undoes {@code register} for a vote which has not been counted.
+	 */
+	void unregister(Person p) {
+		hasVoted.remove(p.getSsn());
+	}
+
+	/**
+	 * Adds a vote read from the session journal, skipping every check. The vote is
+	 * only stored: the tally must then be rebuilt with {@code recount}.
+	 *
+	 * @param ballot
+	 *                the vote, as returned by {@code encode}.
+	 * @param ssn
+	 *                the SSN of the voter.
+	 */
+	void replayVote(int[] ballot, String ssn) {
+		hasVoted.add(ssn);
+		ballots.add(ballot);
+	}
+
+	/**
+	 * Rebuilds the tally from the stored votes, counted in parallel on the common
+	 * {@link ForkJoinPool}. Must not be called while votes are being added.
+	 */
+	void recount() {
+		tally.recount(ballots, ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Stores the given vote, encoded as {@code ballot}, and counts it.
+	 */
+	void count(int[] ballot) {
+		ballots.add(ballot);
+		tally.count(ballot);
+	}
+
+	/**
+	 * Encodes the given vote as the indexes of its chosen {@link Choice}s: a single
+	 * index for categorical votes, the indexes in order of preference for ordinal
+	 * votes.
+	 *
+	 * @throws IllegalArgumentException
+	 *                 if a choice of the vote is not part of this paper.
+	 */
+	int[] encode(Vote v) {
+		if (v instanceof OrdinalVote) {
+			List<Choice> order = ((OrdinalVote) v).getOrder();
+			int[] res = new int[order.size()];
+			for (int i = 0; i < res.length; i++)
+				res[i] = indexOf(order.get(i));
+			return res;
+		}
+		return new int[] { indexOf(((CategoricalVote) v).getChoice()) };
+	}
+
+	/**
+	 * Decodes a vote encoded by {@code encode}.
+	 */
+	Vote decode(int[] ballot) {
+		if (method.isOrdinal()) {
+			List<Choice> order = new ArrayList<>(ballot.length);
+			for (int c : ballot)
+				order.add(choiceList.get(c));
+			return new OrdinalVote(order);
+		}
+		switch (method) {
+		case REFERENDUM:
+			return new ReferendumVote(choiceList.get(ballot[0]));
+		case PREFERENCED:
+			return new PreferencedVote(choiceList.get(ballot[0]));
+		default:
+			return new CategoricalVote(choiceList.get(ballot[0]));
+		}
+	}
+
+	private int indexOf(Choice c) {
+		Integer idx = choiceIndex.get(c);
+		if (idx == null)
+			throw new IllegalArgumentException("choice " + c + " is not part of paper \"" + getTitle() + "\"");
+		return idx;
 	}
 
 	/**
 	 * Returns the {@link Results} for the election represented by this VotingPaper.
+	 * The results of a closed session are only generated once.
 	 *
 	 * @return the results.
 	 * @throws IllegalStateException
 	 *                 if the election of this paper is still running.
 	 */
 	public Results getResults() {
-		if (Session.isRunning())
+		checkNotRunning();
+		return results(d -> session.howManyEligible(d));
+	}
+
+	/**
+	 * Returns the {@link ResultTree} of this paper: its {@link Results} and, for a
+	 * PREFERENCED paper, those of its subpapers. The papers are tabulated in
+	 * parallel, and the people eligible for all of them are counted once.
+	 *
+	 * @return the results of this paper and of its subpapers.
+	 * @throws IllegalStateException
+	 *                 if the election of this paper is still running.
+	 */
+	public ResultTree getResultTree() {
+		checkNotRunning();
+		List<VotingPaper> papers = new ArrayList<>();
+		collectTree(papers);
+		Set<VoteDecider> deciders = new HashSet<>();
+		for (VotingPaper p : papers)
+			deciders.add(p.decider);
+		SharedEligibility eligible = new SharedEligibility(session, deciders);
+		Map<VotingPaper, Results> results = papers.parallelStream().collect(Collectors.toConcurrentMap(p -> p, p -> p.results(eligible::get)));
+		return buildTree(results);
+	}
+
+	private void collectTree(List<VotingPaper> papers) {
+		papers.add(this);
+		for (VotingPaper sub : choices.values())
+			if (sub != null)
+				sub.collectTree(papers);
+	}
+
+	private ResultTree buildTree(Map<VotingPaper, Results> results) {
+		Map<Choice, ResultTree> subtrees = new LinkedHashMap<>();
+		for (Map.Entry<Choice, VotingPaper> e : choices.entrySet())
+			if (e.getValue() != null)
+				subtrees.put(e.getKey(), e.getValue().buildTree(results));
+		return new ResultTree(this, results.get(this), subtrees);
+	}
+
+	/**
+	 * Counts the people eligible for a tree of papers, the first time one of the
+	 * counts is needed. The counts of all the deciders of the tree are computed
+	 * with a single read of the people.
+	 */
+	private static final class SharedEligibility {
+		private final Session session;
+		private final Set<VoteDecider> deciders;
+		private Map<VoteDecider, Long> counts; // computed when first needed
+
+		SharedEligibility(Session session, Set<VoteDecider> deciders) {
+			this.session = session;
+			this.deciders = deciders;
+		}
+
+		synchronized long get(VoteDecider decider) {
+			if (counts == null)
+				counts = session.howManyEligible(deciders);
+			return counts.get(decider);
+		}
+	}
+
+	private void checkNotRunning() {
+		Session s = session;
+		if (s != null && s.isRunning())
 			throw new IllegalStateException("cannot get results when the session is running");
-		return new Results();
+	}
+
+	/**
+	 * Returns the results of this paper, which is not running. The results of a
+	 * closed session are only generated once.
+	 *
+	 * @param eligible
+	 *                counts the people eligible according to a decider.
+	 */
+	private Results results(ToLongFunction<VoteDecider> eligible) {
+		Session s = session;
+		if (s == null || s.getState() != SessionState.CLOSED)
+			return generateResults(eligible);
+		Results r = closedResults;
+		if (r == null) {
+			synchronized (this) {
+				r = closedResults;
+				if (r == null)
+					closedResults = r = loadResults(s, eligible);
+			}
+		}
+		return r;
+	}
+
+	/**
+	 * Returns the stored results of this paper, whose session is closed, or
+	 * generates and stores them if there are none. The results are generated
+	 * without being stored if the session is not journaled or if the repository
+	 * is not available.
+	 */
+	private Results loadResults(Session s, ToLongFunction<VoteDecider> eligible) {
+		String journalId = s.getJournalId();
+		PaperResultsRepository repo = SVeSE.getResultsRepo();
+		if (journalId == null || repo == null)
+			return generateResults(eligible);
+		String key = PaperResults.idOf(journalId, id);
+		try {
+			Optional<PaperResults> stored = repo.findById(key);
+			if (stored.isPresent()) {
+				PaperResults pr = stored.get();
+				if (pr.getTotalVotes() == hasVoted.size() && pr.getScores().length == choiceList.size()) {
+					logger.info("Results of paper \"" + getTitle() + "\" loaded from " + pr);
+					return new Results(pr.getScores(), pr.getTotalVotes(), pr.getTurnout());
+				}
+				logger.warn("Discarding stored results " + pr + " not matching paper \"" + getTitle() + "\"");
+			}
+		} catch (DataAccessException e) {
+			logger.warn("Cannot load the results of paper \"" + getTitle() + "\"", e);
+		}
+		Results r = generateResults(eligible);
+		try {
+			repo.save(new PaperResults(key, r.scores, r.totalVotes, r.turnout));
+		} catch (DataAccessException e) {
+			logger.warn("Cannot store the results of paper \"" + getTitle() + "\"", e);
+		}
+		return r;
+	}
+
+	/**
+	 * Generates the results of this paper from the tally.
+	 *
+	 * @throws IllegalStateException
+	 *                 if this paper is not part of a session.
+	 */
+	Results generateResults() {
+		return generateResults(d -> session.howManyEligible(d));
+	}
+
+	private Results generateResults(ToLongFunction<VoteDecider> eligible) {
+		if (session == null)
+			throw new IllegalStateException("cannot get the results: paper \"" + getTitle() + "\" is not part of a session");
+		logger.info("Generating results...");
+		long[] scores = tally.scores();
+		long totalVotes = hasVoted.size();
+		double eligibleVoters = eligible.applyAsLong(decider);
+		Results r = new Results(scores, totalVotes, totalVotes / eligibleVoters);
+		logger.info("Results generated: " + r);
+		return r;
 	}
 
 	/**
@@ -205,34 +576,24 @@ public class VotingPaper implements Iterable<Choice> {
 	 */
 	public class Results implements Iterable<Results.Result> {
 		private final List<Result> allResults;
+		private final long[] scores; // score of every choice, by choice index
 		private final long totalVotes;
 		private final double turnout; // turnout in [0,1]
 
-		private Results() {
-			logger.info("Generating results...");
-			Set<Choice> choices = getChoices();
-			List<Result> res = new ArrayList<>(choices.size());
-			for (Choice c : choices) {
-				long score = 0;
-				for (Vote v : votes) {
-					score += v.getValue(c);
-				}
-				res.add(new Result(c, score));
-			}
+		private Results(long[] scores, long totalVotes, double turnout) {
+			List<Result> res = new ArrayList<>(scores.length);
+			for (int i = 0; i < scores.length; i++)
+				res.add(new Result(choiceList.get(i), scores[i]));
 			res.sort(new Comparator<>() {
 				@Override
 				public int compare(Result res1, Result res2) {
-					return Math.toIntExact(res1.score - res2.score);
+					return Long.compare(res2.score, res1.score);
 				}
 			});
-			this.totalVotes = hasVoted.size();
-			Session s = Session.getSession();
-			if (s == null)
-				throw new IllegalStateException("cannot get the results: there is no session");
-			double eligible = s.howManyEligible(decider);
-			this.turnout = totalVotes / eligible;
+			this.scores = scores;
+			this.totalVotes = totalVotes;
+			this.turnout = turnout;
 			this.allResults = res;
-			logger.info("Results generated: " + this);
 		}
 
 		/**
@@ -293,6 +654,20 @@ public class VotingPaper implements Iterable<Choice> {
 			throw new IllegalArgumentException("choice \"" + c.getName() + "\" was not present in paper \"" + getTitle() + "\"");
 		}
 
+		/**
+		 * Returns the elected {@link Choice}s of the containing {@link VotingPaper}:
+		 * the {@code getSeats()} choices with the highest score, in descending order
+		 * of score.
+		 *
+		 * @return the elected choices.
+		 */
+		public List<Choice> getWinners() {
+			List<Choice> res = new ArrayList<>(seats);
+			for (int i = 0; i < seats; i++)
+				res.add(allResults.get(i).getChoice());
+			return res;
+		}
+
 		@Override
 		public Iterator<Result> iterator() {
 			return allResults.iterator();
@@ -331,13 +706,16 @@ public class VotingPaper implements Iterable<Choice> {
 			}
 
 			/**
-			 * Return this Result's relative score as a double between 0 and 1.
-			 *
+			 * Return this Result's relative score as a double between 0 and 1. For
+			 * methods ranking the choices, this is the share of the other choices ranked
+			 * below the choice.
 			 *
 			 * @return the relative score.
 			 */
 			public double getRelativeScore() {
 				int numChoices = getChoices().size();
+				if (getMethod().isRanking())
+					return (double) score / (numChoices - 1);
 				int scorePerVote = getMethod() == ElectionMethod.ORDINAL ? (numChoices - 1) * numChoices / 2 : 1;
 				return (double) score / (totalVotes * scorePerVote);
 			}
@@ -370,7 +748,7 @@ public class VotingPaper implements Iterable<Choice> {
 	 *         original (votes, running state).
 	 */
 	public VotingPaper copy() {
-		return new VotingPaper(title, copyChoiceMap(choices), method, decider);
+		return new VotingPaper(title, copyChoiceMap(choices), method, decider, seats);
 	}
 
 	/**
@@ -389,11 +767,11 @@ public class VotingPaper implements Iterable<Choice> {
 	}
 
 	/**
-	 * Creates a copy of the given Choice map. Also checks no Choices are
-	 * {@code null}.
+	 * Creates a copy of the given Choice map, preserving its iteration order. Also
+	 * checks no Choices are {@code null}.
 	 */
 	private static Map<Choice, VotingPaper> copyChoiceMap(Map<Choice, VotingPaper> choices) {
-		Map<Choice, VotingPaper> res = new HashMap<>(choices.size());
+		Map<Choice, VotingPaper> res = new LinkedHashMap<>(choices.size());
 		for (Map.Entry<Choice, VotingPaper> e : choices.entrySet())
 			res.put(Objects.requireNonNull(e.getKey()), e.getValue() == null ? null : e.getValue().copy());
 		return res;
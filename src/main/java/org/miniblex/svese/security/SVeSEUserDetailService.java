@@ -2,8 +2,13 @@ package org.miniblex.svese.security;
 
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
 
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.PersonRepository;
@@ -20,23 +25,100 @@ import org.springframework.security.core.userdetails.UsernameNotFoundException;
 /**
  * Implementation of {@link UserDetailsService}: provides information about a
  * user which is to be logged in.
+ *
+ * The users are cached, so that the logins of many voters at the opening of
+ * the polls do not all reach the database: up to {@value #CACHE_SIZE} users,
+ * least recently used first out, each for {@value #TTL_SECONDS} seconds, or
+ * {@value #NEGATIVE_TTL_SECONDS} for an unknown SSN. A cached user is dropped
+ * as soon as the roles change (see {@link Session#getRolesVersion}) or the
+ * person is written (see {@link Person#addChangeListener}), so that a new
+ * password or a disabled account take effect at the next login.
+ * Every call returns a new {@link User}, as Spring Security erases the
+ * password of the returned one after authentication.
  */
 // @Service("userDetailsService")
 // @Transactional
 class SVeSEUserDetailService implements UserDetailsService {
+	static final int CACHE_SIZE = 10_000;
+	private static final long TTL_SECONDS = 60;
+	private static final long NEGATIVE_TTL_SECONDS = 10;
 
 	@Autowired
 	private PersonRepository personRepo;
 
+	private final LongSupplier nanoTime; // as System.nanoTime()
+	private final AtomicLong changes = new AtomicLong(); // people changed, incremented while holding the cache
+
+	// by SSN, in access order; guarded by itself
+	private final Map<String, CachedUser> cache = new LinkedHashMap<>(16, 0.75f, true) {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<String, CachedUser> eldest) {
+			return size() > CACHE_SIZE;
+		}
+	};
+
+	/**
+	 * Constructs a new SVeSEUserDetailService, whose repository is injected by
+	 * Spring.
+	 */
+	SVeSEUserDetailService() {
+		this.nanoTime = System::nanoTime;
+		Person.addChangeListener(this::changed);
+	}
+
+	/**
+	 * Constructs a new SVeSEUserDetailService reading the given repository, whose
+	 * users expire according to the given time source, in nanoseconds.
+	 */
+	SVeSEUserDetailService(PersonRepository personRepo, LongSupplier nanoTime) {
+		this.personRepo = personRepo;
+		this.nanoTime = nanoTime;
+		Person.addChangeListener(this::changed);
+	}
+
 	@Override
 	public UserDetails loadUserByUsername(String SSN) throws UsernameNotFoundException {
+		long now = nanoTime.getAsLong();
+		long rolesVersion = Session.getRolesVersion(); // before reading the roles
+		long changed = changes.get(); // before reading the person
+		CachedUser cached;
+		synchronized (cache) {
+			cached = cache.get(SSN);
+		}
+		if (cached == null || cached.rolesVersion != rolesVersion || now - cached.expires >= 0) {
+			cached = load(SSN, now, rolesVersion);
+			synchronized (cache) {
+				if (changes.get() == changed) // otherwise it may have been read before the change
+					cache.put(SSN, cached);
+			}
+		}
+		return cached.toUser();
+	}
 
+	/**
+	 * Drops the cached user with the given SSN, or every cached user if
+	 * {@code SSN} is {@code null}, as the person has changed.
+	 */
+	private void changed(String SSN) {
+		synchronized (cache) {
+			changes.incrementAndGet();
+			if (SSN == null)
+				cache.clear();
+			else
+				cache.remove(SSN);
+		}
+	}
+
+	private CachedUser load(String SSN, long now, long rolesVersion) {
 		Optional<Person> userMaybe = personRepo.findById(SSN);
 		if (userMaybe.isEmpty()) {
-			return new User(" ", " ", true, true, true, true, getGrantedAuthorities(new ArrayList<>()));
+			return new CachedUser(" ", " ", true, getGrantedAuthorities(new ArrayList<>()), rolesVersion, now + TimeUnit.SECONDS.toNanos(NEGATIVE_TTL_SECONDS));
 		}
 		Person user = userMaybe.get();
-		return new User(user.getSsn(), user.getPwHash(), user.isEnabled(), true, true, true, getGrantedAuthorities(Session.getRoles(user)));
+		return new CachedUser(user.getSsn(), user.getPwHash(), user.isEnabled(), getGrantedAuthorities(Session.getRoles(user)), rolesVersion,
+				now + TimeUnit.SECONDS.toNanos(TTL_SECONDS));
 	}
 
 	/**
@@ -50,4 +132,29 @@ class SVeSEUserDetailService implements UserDetailsService {
 		}
 		return authorities;
 	}
+
+	/**
+	 * The data of a cached user, from which each call builds a new {@link User}.
+	 */
+	private static final class CachedUser {
+		private final String username;
+		private final String password;
+		private final boolean enabled;
+		private final List<GrantedAuthority> authorities;
+		private final long rolesVersion; // of the roles the authorities were read from
+		private final long expires; // System.nanoTime() of expiration
+
+		private CachedUser(String username, String password, boolean enabled, List<GrantedAuthority> authorities, long rolesVersion, long expires) {
+			this.username = username;
+			this.password = password;
+			this.enabled = enabled;
+			this.authorities = List.copyOf(authorities);
+			this.rolesVersion = rolesVersion;
+			this.expires = expires;
+		}
+
+		private User toUser() {
+			return new User(username, password, enabled, true, true, true, authorities);
+		}
+	}
 }
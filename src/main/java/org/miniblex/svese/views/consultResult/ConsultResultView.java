@@ -1,25 +1,37 @@
 package org.miniblex.svese.views.consultResult;
 
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.annotation.security.RolesAllowed;
 
 import com.vaadin.flow.component.Html;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.dialog.Dialog;
+import com.vaadin.flow.component.html.Anchor;
+import com.vaadin.flow.component.html.H3;
 import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.router.Route;
 
 import org.miniblex.svese.model.Choice;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.ResultTree;
+import org.miniblex.svese.model.Role;
 import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
 import org.miniblex.svese.model.VotingPaper;
 import org.miniblex.svese.model.VotingPaper.Results;
 import org.miniblex.svese.model.VotingPaper.Results.Result;
+import org.miniblex.svese.security.SecurityService;
 import org.miniblex.svese.views.main.MainView;
+import org.springframework.beans.factory.annotation.Autowired;
 
 /**
  * User interface to stop the voting session in a polling station
@@ -27,29 +39,39 @@ import org.miniblex.svese.views.main.MainView;
 @RolesAllowed({ "GUARANTOR", "ADMIN" })
 @Route(value = "/consult", layout = MainView.class)
 public class ConsultResultView extends VerticalLayout {
-	private Session s;
-
-	public ConsultResultView() {
+	public ConsultResultView(@Autowired SecurityService sec) {
 		Label error = new Label();
-		try {
-			s = Session.getSession();
-			if (Session.isRunning()) {
-				error.setText("Current session is still running");
+		Person p = sec.getAuthenticatedPerson();
+		boolean admin = Session.getRoles(p).contains(Role.ADMIN);
+		List<Session> sessions = new ArrayList<>();
+		for (Session s : SessionRegistry.getSessions())
+			if (admin || s.isGuarantor(p))
+				sessions.add(s);
+		if (sessions.isEmpty())
+			error.setText("No session is currently available");
+		for (Session s : sessions) {
+			if (s.isRunning()) {
+				error.setText("Session \"" + s.getName() + "\" is still running");
 			} else {
-				add(createResultLayout(s.getPapers()));
+				add(new H3(s.getName()), new HorizontalLayout(exportLink(s, "csv"), exportLink(s, "json")),
+						createResultLayout(s.getPapers(), VotingPaper::getResultTree));
 			}
-		} catch (NullPointerException e) {
-			error.setText("No session is currently available");
-		} finally {
-			add(error);
 		}
+		add(error);
 
 		getStyle().set("position", "fixed").set("top", "0").set("right", "0").set("bottom", "0").set("left", "0")
 				.set("display", "flex").set("align-items", "center").set("justify-content", "center");
 		this.setPadding(false);
 	}
 
-	private VerticalLayout createResultLayout(List<VotingPaper> vps) {
+	private static Anchor exportLink(Session s, String format) {
+		Anchor a = new Anchor("export/" + s.getName() + "." + format, "Esporta " + format.toUpperCase());
+		a.getElement().setAttribute("router-ignore", true); // served by ExportController, not by the router
+		a.getElement().setAttribute("download", true);
+		return a;
+	}
+
+	private VerticalLayout createResultLayout(List<VotingPaper> vps, Function<VotingPaper, ResultTree> trees) {
 		VerticalLayout vl = new VerticalLayout();
 		HorizontalLayout buttons = new HorizontalLayout();
 		for (VotingPaper vp : vps) {
@@ -58,18 +80,23 @@ public class ConsultResultView extends VerticalLayout {
 			}
 			Button b = new Button("Risultati: " + vp.getTitle(), e -> {
 				Dialog d = null;
+				ResultTree tree = trees.apply(vp);
 				switch (vp.getMethod()) {
 					case CATEGORICAL:
-						d = createCategoricalResultDialog(vp);
+						d = createCategoricalResultDialog(tree);
 						break;
 					case REFERENDUM:
-						d = createCategoricalResultDialog(vp);
+						d = createCategoricalResultDialog(tree);
 						break;
 					case ORDINAL:
-						d = createOrdinalResultDialog(vp);
+					case SCHULZE:
+					case RANKED_PAIRS:
+					case IRV:
+					case STV:
+						d = createOrdinalResultDialog(tree);
 						break;
 					case PREFERENCED:
-						d = createPreferencedResultDialog(vp);
+						d = createPreferencedResultDialog(tree);
 						break;
 				}
 				vl.add(d);
@@ -82,19 +109,25 @@ public class ConsultResultView extends VerticalLayout {
 		return vl;
 	}
 
-	private Dialog createOrdinalResultDialog(VotingPaper vp) {
+	private Dialog createOrdinalResultDialog(ResultTree tree) {
 		Dialog d = new Dialog();
 		VerticalLayout vl = new VerticalLayout();
 		vl.setPadding(false);
-		Results results = vp.getResults();
+		VotingPaper vp = tree.getPaper();
+		Results results = tree.getResults();
 		String result = "<dl>" + vp.getTitle();
+		String score = vp.getMethod().isRanking() ? " - Sconfitti: " : " - Punteggio: ";
 		for (Result r : results) {
-			result += "<dt>" + r.getChoice().getName() + " - Punteggio: " + r.getScore() + "("
+			result += "<dt>" + r.getChoice().getName() + score + r.getScore() + "("
 					+ round(r.getRelativeScore() * 100, 2) + "%) </dt>";
 		}
 		result += "In totale sono stati registrati " + results.getTotalVotes() + " voti, con un affluenza del "
 				+ round(results.getTurnout() * 100, 2) + "%.<br>";
-		result += "Il vincitore è " + results.iterator().next().getChoice().getName();
+		List<Choice> winners = results.getWinners();
+		if (winners.size() == 1)
+			result += "Il vincitore è " + winners.get(0).getName();
+		else
+			result += "Gli eletti sono " + winners.stream().map(Choice::getName).collect(Collectors.joining(", "));
 		result += "</dl>";
 
 		Html resultHtml = new Html(result);
@@ -105,26 +138,29 @@ public class ConsultResultView extends VerticalLayout {
 		return d;
 	}
 
-	private Dialog createCategoricalResultDialog(VotingPaper vp) {
+	private Dialog createCategoricalResultDialog(ResultTree tree) {
 		Dialog d = new Dialog();
 		VerticalLayout vl = new VerticalLayout();
 		vl.setPadding(false);
-		vl.add(createCategoricalTable(vp));
+		vl.add(createCategoricalTable(tree));
 		vl.add(new Button("Close", e -> d.close()));
 		vl.setAlignItems(Alignment.CENTER);
 		d.add(vl);
 		return d;
 	}
 
-	private Dialog createPreferencedResultDialog(VotingPaper vp) {
+	private Dialog createPreferencedResultDialog(ResultTree tree) {
 		Dialog d = new Dialog();
 		VerticalLayout vl = new VerticalLayout();
+		VotingPaper vp = tree.getPaper();
 		List<VotingPaper> subVotingPapers = new LinkedList<>();
+		Map<VotingPaper, ResultTree> subtrees = new HashMap<>();
 		for (Choice c : vp.getChoices()) {
 			subVotingPapers.add(vp.getSubPaper(c));
+			subtrees.put(vp.getSubPaper(c), tree.getSubtree(c));
 		}
 		vl.setAlignItems(Alignment.CENTER);
-		vl.add(createCategoricalTable(vp), createResultLayout(subVotingPapers));
+		vl.add(createCategoricalTable(tree), createResultLayout(subVotingPapers, subtrees::get));
 		d.add(vl);
 		return d;
 	}
@@ -139,8 +175,9 @@ public class ConsultResultView extends VerticalLayout {
 		return (double) tmp / factor;
 	}
 
-	public Html createCategoricalTable(VotingPaper vp) {
-		Results results = vp.getResults();
+	public Html createCategoricalTable(ResultTree tree) {
+		VotingPaper vp = tree.getPaper();
+		Results results = tree.getResults();
 		String result = "<table>";
 		result += "<caption>" + vp.getTitle() + "</caption>";
 		result += "<th>Nome</th><th>Voti</th><th>Percentuale</th>";
@@ -13,15 +13,20 @@ import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.BeforeEvent;
+import com.vaadin.flow.router.HasUrlParameter;
+import com.vaadin.flow.router.OptionalParameter;
 import com.vaadin.flow.router.Route;
 
 import org.miniblex.svese.model.Choice;
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
 import org.miniblex.svese.model.VotingPaper;
 import org.miniblex.svese.model.Session.SessionParameters;
 import org.miniblex.svese.security.SecurityService;
 import org.miniblex.svese.views.main.MainView;
+import org.miniblex.svese.views.main.SessionSelect;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -29,7 +34,7 @@ import org.springframework.beans.factory.annotation.Autowired;
  */
 @RolesAllowed("GUARANTOR")
 @Route(value = "/approve", layout = MainView.class)
-public class GuarantorsApproveView extends VerticalLayout {
+public class GuarantorsApproveView extends VerticalLayout implements HasUrlParameter<String> {
 	Dialog dialog = new Dialog();
 	private Button approveButton = new Button("Approve", e -> dialog.open());
 	private Session s;
@@ -39,19 +44,34 @@ public class GuarantorsApproveView extends VerticalLayout {
 		this.sec = sec;
 		this.setAlignItems(Alignment.CENTER);
 		VerticalLayout dialogLayout = createConfirmDialog();
-		Label text = new Label();
 		dialog.add(dialogLayout);
+
+		getStyle().set("position", "fixed").set("top", "0").set("right", "0").set("bottom", "0").set("left", "0")
+				.set("display", "flex").set("align-items", "center").set("justify-content", "center");
+	}
+
+	@Override
+	public void setParameter(BeforeEvent event, @OptionalParameter String name) {
+		removeAll();
+		Label text = new Label();
 		try {
-			s = Session.getSession();
+			Person guarantor = sec.getAuthenticatedPerson();
+			List<Session> sessions = new ArrayList<>();
+			for (Session session : SessionRegistry.getSessions())
+				if (session.isGuarantor(guarantor))
+					sessions.add(session);
+			s = SessionSelect.find(sessions, name);
+			this.add(new SessionSelect(GuarantorsApproveView.class, sessions, s));
 			if (!s.isReady()) {
 				text.setText("Current session is not ready to be approved");
 				approveButton.setEnabled(false);
-			} else if (s.hasApproved(sec.getAuthenticatedPerson())) {
+			} else if (s.hasApproved(guarantor)) {
 				approveButton.setEnabled(false);
 				approveButton.setText("Already approved");
 			} else {
 				this.add(createSessionLayout());
 				approveButton.setEnabled(true);
+				approveButton.setText("Approve");
 			}
 		} catch (
 
@@ -61,9 +81,6 @@ public class GuarantorsApproveView extends VerticalLayout {
 		} finally {
 			add(dialog, text, approveButton);
 		}
-
-		getStyle().set("position", "fixed").set("top", "0").set("right", "0").set("bottom", "0").set("left", "0")
-				.set("display", "flex").set("align-items", "center").set("justify-content", "center");
 	}
 
 	/**
@@ -99,7 +116,6 @@ public class GuarantorsApproveView extends VerticalLayout {
 
 	private VerticalLayout createSessionLayout() {
 		VerticalLayout vl = new VerticalLayout();
-		Session s = Session.getSession();
 		SessionParameters sp = s.getCurrentParameters();
 		vl.add(new Label("La sessione contiene i seguenti garanti:"));
 		for (Person p : s.getGuarantors()) {
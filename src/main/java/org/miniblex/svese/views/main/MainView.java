@@ -23,6 +23,7 @@ import org.miniblex.svese.security.SecurityService;
 import org.miniblex.svese.views.logout.LogoutView;
 import org.miniblex.svese.views.consultResult.ConsultResultView;
 import org.miniblex.svese.views.guarantorsApprove.GuarantorsApproveView;
+import org.miniblex.svese.views.turnout.TurnoutView;
 import org.miniblex.svese.views.vote.VoteView;
 import org.springframework.beans.factory.annotation.Autowired;
 
@@ -63,6 +64,7 @@ public class MainView extends AppLayout {
 		if (roles.contains(Role.GUARANTOR) || roles.contains(Role.ADMIN)) {
 			tabs.add(createTab(VaadinIcon.CHART, "Consult result",
 					ConsultResultView.class));
+			tabs.add(createTab(VaadinIcon.USERS, "Turnout", TurnoutView.class));
 		}
 		tabs.add(createTab(VaadinIcon.SIGN_OUT, "Logout", LogoutView.class));
 		return tabs.toArray(new Tab[tabs.size()]);
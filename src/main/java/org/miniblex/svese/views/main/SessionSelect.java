@@ -0,0 +1,61 @@
+package org.miniblex.svese.views.main;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import com.vaadin.flow.component.Component;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.select.Select;
+import com.vaadin.flow.router.HasUrlParameter;
+
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
+
+/**
+ * Selector of the session shown by a view which takes the session name as URL
+ * parameter. Selecting a session navigates to the view of that session.
+ */
+public class SessionSelect extends Select<String> {
+
+	/**
+	 * Creates a selector of the given sessions.
+	 *
+	 * @param view
+	 *                the view to navigate to.
+	 * @param sessions
+	 *                the selectable sessions.
+	 * @param current
+	 *                the session currently shown, or {@code null}.
+	 */
+	public <C extends Component & HasUrlParameter<String>> SessionSelect(Class<C> view, List<Session> sessions, Session current) {
+		List<String> names = new ArrayList<>(sessions.size());
+		for (Session s : sessions)
+			names.add(s.getName());
+		setLabel("Session");
+		setItems(names);
+		if (current != null)
+			setValue(current.getName());
+		addValueChangeListener(e -> {
+			if (e.isFromClient())
+				UI.getCurrent().navigate(view, e.getValue());
+		});
+	}
+
+	/**
+	 * Returns the session with the given name among the given sessions. If no
+	 * name is given, returns the default session or, if it is not among the
+	 * given ones, the first one.
+	 *
+	 * @param sessions
+	 *                the sessions.
+	 * @param name
+	 *                the name of the session, or {@code null}.
+	 * @return the session, or {@code null} if there is no such session.
+	 */
+	public static Session find(List<Session> sessions, String name) {
+		for (Session s : sessions)
+			if (s.getName().equals(name == null ? SessionRegistry.DEFAULT_SESSION : name))
+				return s;
+		return name == null && !sessions.isEmpty() ? sessions.get(0) : null;
+	}
+}
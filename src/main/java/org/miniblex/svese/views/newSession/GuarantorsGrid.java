@@ -4,9 +4,12 @@ import java.util.Set;
 
 import com.vaadin.flow.component.grid.Grid;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
+import com.vaadin.flow.spring.data.VaadinSpringDataHelpers;
 
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.PersonRepository;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Sort;
 
 public class GuarantorsGrid extends HorizontalLayout {
 	Grid<Person> g = new Grid<>(Person.class, false);
@@ -20,14 +23,19 @@ public class GuarantorsGrid extends HorizontalLayout {
 	}
 
 	private void initializeGrid() {
-		g.addColumn(Person::getFirstName).setHeader("First name").setSortable(true);
-		g.addColumn(Person::getLastName).setHeader("Last name").setSortable(true);
-		g.addColumn(Person::getBirthPlace).setHeader("Birth place").setSortable(true);
-		g.addColumn(Person::getBirthDate).setHeader("Birth date").setSortable(true);
-		g.addColumn((Person p) -> new String(p.getSsn())).setHeader("SSN").setSortable(true);
+		g.addColumn(Person::getFirstName).setHeader("First name").setSortProperty("firstName");
+		g.addColumn(Person::getLastName).setHeader("Last name").setSortProperty("lastName");
+		g.addColumn(Person::getBirthPlace).setHeader("Birth place").setSortProperty("birthPlace");
+		g.addColumn(Person::getBirthDate).setHeader("Birth date").setSortProperty("birthDate");
+		g.addColumn((Person p) -> new String(p.getSsn())).setHeader("SSN").setSortProperty("ssn");
 		g.setSelectionMode(Grid.SelectionMode.MULTI);
 
-		g.setItems(pr.findAll());
+		// people are read one page at a time as the grid is scrolled, in a stable
+		// order so that pages do not overlap
+		g.setItems(query -> {
+			PageRequest page = VaadinSpringDataHelpers.toSpringPageRequest(query);
+			return pr.findAll(page.withSort(page.getSort().and(Sort.by("ssn")))).stream();
+		});
 
 		add(g);
 	}
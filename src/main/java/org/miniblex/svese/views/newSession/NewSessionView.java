@@ -15,11 +15,12 @@ import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.component.textfield.TextField;
 import com.vaadin.flow.router.Route;
 
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.PersonRepository;
-import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
 import org.miniblex.svese.model.Session.SessionParameters;
 import org.miniblex.svese.views.main.MainView;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,6 +38,7 @@ public class NewSessionView extends VerticalLayout {
 
 	private PersonRepository pr;
 
+	private TextField namePicker;
 	private DateTimePicker startPicker;
 	private DateTimePicker endPicker;
 	private NewVotingPaper newVotingPaper;
@@ -44,15 +46,11 @@ public class NewSessionView extends VerticalLayout {
 
 	public NewSessionView(@Autowired PersonRepository pr) {
 		this.pr = pr;
-		if (!Session.isRunning()) {
-			VerticalLayout dialogLayout = createDialog();
-			dialog.add(dialogLayout);
-			this.setAlignItems(Alignment.CENTER);
-			newVotingPaper = new NewVotingPaper();
-			this.add(newVotingPaper, createForm(), dialog);
-		} else {
-			this.add(new Label("Session is currently running"));
-		}
+		VerticalLayout dialogLayout = createDialog();
+		dialog.add(dialogLayout);
+		this.setAlignItems(Alignment.CENTER);
+		newVotingPaper = new NewVotingPaper();
+		this.add(newVotingPaper, createForm(), dialog);
 		getStyle().set("position", "fixed").set("top", "1").set("right", "0").set("bottom", "1").set("left", "0")
 				.set("display", "flex").set("align-items", "center").set("justify-content", "center");
 	}
@@ -75,7 +73,7 @@ public class NewSessionView extends VerticalLayout {
 				success.setVisible(true);
 				error.setVisible(false);
 				dialog.close();
-			} catch (NullPointerException | IllegalArgumentException ex) {
+			} catch (NullPointerException | IllegalArgumentException | IllegalStateException ex) {
 				error.setVisible(true);
 				success.setVisible(false);
 				dialog.close();
@@ -112,13 +110,17 @@ public class NewSessionView extends VerticalLayout {
 			dialog.open();
 		});
 
+		namePicker = new TextField("Session name");
+		namePicker.setValue(SessionRegistry.DEFAULT_SESSION);
+		namePicker.setHelperText("Replaces the session with the same name, unless it is running");
+
 		startPicker = new DateTimePicker();
 		startPicker.setLabel("Start of the voting session");
 
 		endPicker = new DateTimePicker();
 		endPicker.setLabel("End of the voting session");
 
-		basicComponents.add(new Label("Session parameters"), startPicker, endPicker, error, success, confirmButton);
+		basicComponents.add(new Label("Session parameters"), namePicker, startPicker, endPicker, error, success, confirmButton);
 		guarantorsGrid = new GuarantorsGrid(pr);
 
 		VerticalLayout guarantorsLayout = new VerticalLayout(new Label("Guarantors selection"),
@@ -139,7 +141,7 @@ public class NewSessionView extends VerticalLayout {
 		for (Person p : guarantorsGrid.getSelected()) {
 			g.add(p);
 		}
-		Session.initializeSession(sp, g);
+		SessionRegistry.initializeSession(namePicker.getValue().trim(), sp, g);
 	}
 
 }
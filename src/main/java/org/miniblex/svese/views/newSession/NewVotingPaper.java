@@ -15,6 +15,7 @@ import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 import com.vaadin.flow.component.select.Select;
+import com.vaadin.flow.component.textfield.IntegerField;
 import com.vaadin.flow.component.textfield.TextField;
 
 import org.miniblex.svese.model.AdultDecider;
@@ -31,6 +32,7 @@ public class NewVotingPaper extends VerticalLayout {
 	private Map<Choice, VotingPaper> parentChoices;
 	private Select<ElectionMethod> parentSelect;
 	private TextField parentTitle;
+	private IntegerField parentSeats;
 
 	public NewVotingPaper() {
 		d = new Dialog();
@@ -38,13 +40,14 @@ public class NewVotingPaper extends VerticalLayout {
 		this.parentChoices = new HashMap<>();
 		this.parentSelect = new Select<ElectionMethod>();
 		this.parentTitle = new TextField();
+		this.parentSeats = new IntegerField();
 
 		// Horizontal layout with choice management component
 		HorizontalLayout h = new HorizontalLayout();
 		h.setSizeFull();
 		Grid<Choice> g = getGrid(parentViewChoices);
 
-		h.add(getForm(parentTitle, parentViewChoices, parentChoices, g, parentSelect, false), g);
+		h.add(getForm(parentTitle, parentViewChoices, parentChoices, g, parentSelect, parentSeats, false), g);
 		this.setPadding(false);
 		add(h, d);
 	}
@@ -83,12 +86,14 @@ public class NewVotingPaper extends VerticalLayout {
 	 * @param g                {@link Grid} where input choices are shown.
 	 * @param select           {@link Select} to decide with {@link ElectionMethod}
 	 *                         to use.
+	 * @param seats            {@link IntegerField} with the number of choices to
+	 *                         elect, shown only for {@link ElectionMethod#STV}.
 	 * @param disableComposite If {@code True} disable the composite checkbox.
 	 *
 	 * @return A {@link VerticalLayout} containing the form.
 	 */
 	private VerticalLayout getForm(TextField title, List<Choice> viewChoices, Map<Choice, VotingPaper> choices,
-			Grid<Choice> g, Select<ElectionMethod> select, boolean disableComposite) {
+			Grid<Choice> g, Select<ElectionMethod> select, IntegerField seats, boolean disableComposite) {
 		TextField name = new TextField("Name", "Insert name...");
 		Checkbox composite = new Checkbox("Suboptions enabled");
 		composite.setEnabled(!disableComposite);
@@ -101,11 +106,18 @@ public class NewVotingPaper extends VerticalLayout {
 
 		select.setLabel("Election method");
 		select.setItems(ElectionMethod.values());
-		select.setItemLabelGenerator((var s) -> s.toString().substring(0, 1) + s.toString().substring(1).toLowerCase());
+		select.setItemLabelGenerator((var s) -> s.toString().substring(0, 1) + s.toString().substring(1).toLowerCase().replace('_', ' '));
 		select.setPlaceholder("Method");
 		select.setRequiredIndicatorVisible(true);
 		select.setErrorMessage("This field is required");
 
+		seats.setLabel("Seats");
+		seats.setValue(1);
+		seats.setMin(1);
+		seats.setHasControls(true);
+		seats.setVisible(false);
+		select.addValueChangeListener(e -> seats.setVisible(e.getValue() == ElectionMethod.STV));
+
 		HorizontalLayout form = new HorizontalLayout();
 
 		add.addClickShortcut(Key.ENTER);
@@ -124,7 +136,7 @@ public class NewVotingPaper extends VerticalLayout {
 			refreshGrid(g, viewChoices);
 		});
 
-		VerticalLayout vert = new VerticalLayout(new Label("Choices input"), title, form, select);
+		VerticalLayout vert = new VerticalLayout(new Label("Choices input"), title, form, select, seats);
 		vert.setWidth("50%");
 		return vert;
 	}
@@ -159,6 +171,7 @@ public class NewVotingPaper extends VerticalLayout {
 		Map<Choice, VotingPaper> subChoices = new HashMap<>();
 		Select<ElectionMethod> select = new Select<ElectionMethod>();
 		TextField title = new TextField();
+		IntegerField seats = new IntegerField();
 		System.out.println(subViewChoices);
 
 		VerticalLayout vdialog = new VerticalLayout();
@@ -167,11 +180,11 @@ public class NewVotingPaper extends VerticalLayout {
 		HorizontalLayout h = new HorizontalLayout();
 		h.setSizeFull();
 		Grid<Choice> g = getGrid(subViewChoices);
-		h.add(g, getForm(title, subViewChoices, subChoices, g, select, true));
+		h.add(g, getForm(title, subViewChoices, subChoices, g, select, seats, true));
 
 		vdialog.add(h, new Button("Confirm", e -> {
 			d.close();
-			VotingPaper vot = new VotingPaper(title.getValue(), choices, select.getValue(), new AdultDecider());
+			VotingPaper vot = new VotingPaper(title.getValue(), choices, select.getValue(), new AdultDecider(), seatsOf(select, seats));
 			choices.put(new Choice(name), vot);
 			viewChoices.add(new Choice(name));
 			refreshGrid(parentGrid, viewChoices);
@@ -186,6 +199,14 @@ public class NewVotingPaper extends VerticalLayout {
 	 * @return the parent voting paper.
 	 */
 	protected VotingPaper getVotingPaper() {
-		return new VotingPaper(parentTitle.getValue(), parentChoices, parentSelect.getValue(), new AdultDecider());
+		return new VotingPaper(parentTitle.getValue(), parentChoices, parentSelect.getValue(), new AdultDecider(), seatsOf(parentSelect, parentSeats));
+	}
+
+	/**
+	 * Returns the number of seats input by the user, or 1 if the selected
+	 * {@link ElectionMethod} elects a single choice.
+	 */
+	private static int seatsOf(Select<ElectionMethod> select, IntegerField seats) {
+		return select.getValue() == ElectionMethod.STV && seats.getValue() != null ? seats.getValue() : 1;
 	}
 }
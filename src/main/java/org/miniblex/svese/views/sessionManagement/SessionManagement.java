@@ -13,15 +13,21 @@ import com.vaadin.flow.component.html.Label;
 import com.vaadin.flow.component.orderedlayout.FlexComponent;
 import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.BeforeEvent;
+import com.vaadin.flow.router.HasUrlParameter;
+import com.vaadin.flow.router.OptionalParameter;
 import com.vaadin.flow.router.Route;
 
 import org.miniblex.svese.model.Choice;
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
+import org.miniblex.svese.model.SessionState;
 import org.miniblex.svese.model.VotingPaper;
 import org.miniblex.svese.model.Session.SessionParameters;
 import org.miniblex.svese.security.SecurityService;
 import org.miniblex.svese.views.main.MainView;
+import org.miniblex.svese.views.main.SessionSelect;
 import org.springframework.beans.factory.annotation.Autowired;
 
 /**
@@ -29,7 +35,7 @@ import org.springframework.beans.factory.annotation.Autowired;
  */
 @RolesAllowed("ADMIN")
 @Route(value = "/management", layout = MainView.class)
-public class SessionManagement extends VerticalLayout {
+public class SessionManagement extends VerticalLayout implements HasUrlParameter<String> {
 	Dialog readyDialog = new Dialog();
 	Dialog closeDialog = new Dialog();
 	private Button readyButton = new Button("Set Ready", e -> readyDialog.open());
@@ -40,23 +46,38 @@ public class SessionManagement extends VerticalLayout {
 	public SessionManagement(@Autowired SecurityService sec) {
 		this.sec = sec;
 		this.setAlignItems(Alignment.CENTER);
-		HorizontalLayout hl = new HorizontalLayout();
 		VerticalLayout readyDialogLayout = createReadyDialog();
 		readyDialog.add(readyDialogLayout);
 		VerticalLayout closeDialogLayout = createCloseDialog();
 		closeDialog.add(closeDialogLayout);
+
+		getStyle().set("position", "fixed").set("top", "0").set("right", "0").set("bottom", "0").set("left", "0")
+				.set("display", "flex").set("align-items", "center").set("justify-content", "center");
+	}
+
+	@Override
+	public void setParameter(BeforeEvent event, @OptionalParameter String name) {
+		removeAll();
+		HorizontalLayout hl = new HorizontalLayout();
 		Label text = new Label();
 		try {
-			s = Session.getSession();
+			List<Session> sessions = SessionRegistry.getSessions();
+			s = SessionSelect.find(sessions, name);
+			this.add(new SessionSelect(SessionManagement.class, sessions, s));
 			this.add(createSessionLayout());
-			if (!s.isReady()) {
+			if (s.getState() == SessionState.INITIALIZED) {
 				readyButton.setEnabled(true);
+				readyButton.setText("Set Ready");
+			} else if (s.getState() == SessionState.CLOSED) {
+				readyButton.setEnabled(false);
+				readyButton.setText("Session closed");
 			} else {
 				readyButton.setEnabled(false);
 				readyButton.setText("Already set ready");
 			}
-			if (Session.isRunning()) {
+			if (s.isRunning()) {
 				closeButton.setEnabled(true);
+				closeButton.setText("Force close");
 			} else {
 				closeButton.setEnabled(false);
 				closeButton.setText("Not running");
@@ -70,9 +91,6 @@ public class SessionManagement extends VerticalLayout {
 			hl.setPadding(false);
 			add(readyDialog, closeDialog, text, hl);
 		}
-
-		getStyle().set("position", "fixed").set("top", "0").set("right", "0").set("bottom", "0").set("left", "0")
-				.set("display", "flex").set("align-items", "center").set("justify-content", "center");
 	}
 
 	private VerticalLayout createReadyDialog() {
@@ -127,7 +145,6 @@ public class SessionManagement extends VerticalLayout {
 
 	private VerticalLayout createSessionLayout() {
 		VerticalLayout vl = new VerticalLayout();
-		Session s = Session.getSession();
 		SessionParameters sp = s.getCurrentParameters();
 		vl.add(new Label("La sessione contiene i seguenti garanti:"));
 		for (Person p : s.getGuarantors()) {
@@ -0,0 +1,127 @@
+package org.miniblex.svese.views.turnout;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.security.RolesAllowed;
+
+import com.vaadin.flow.component.AttachEvent;
+import com.vaadin.flow.component.DetachEvent;
+import com.vaadin.flow.component.UI;
+import com.vaadin.flow.component.grid.Grid;
+import com.vaadin.flow.component.html.H3;
+import com.vaadin.flow.component.html.Label;
+import com.vaadin.flow.component.orderedlayout.VerticalLayout;
+import com.vaadin.flow.router.Route;
+
+import org.miniblex.svese.model.Choice;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.Role;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
+import org.miniblex.svese.model.VoteDecider;
+import org.miniblex.svese.model.VotingPaper;
+import org.miniblex.svese.security.SecurityService;
+import org.miniblex.svese.views.consultResult.ConsultResultView;
+import org.miniblex.svese.views.main.MainView;
+import org.springframework.beans.factory.annotation.Autowired;
+
+/**
+ * User interface showing the live turnout of every paper of the sessions the
+ * user guarantees, or of every session for the admin. The view is refreshed by
+ * server push while it is open: only the vote counts are read, never the
+ * votes.
+ */
+@RolesAllowed({ "GUARANTOR", "ADMIN" })
+@Route(value = "/turnout", layout = MainView.class)
+public class TurnoutView extends VerticalLayout {
+	private static final long REFRESH_SECONDS = 2;
+	private static final ScheduledExecutorService refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+		Thread t = new Thread(r, "svese-turnout-refresher");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final List<Grid<VotingPaper>> grids = new ArrayList<>();
+	private final Map<Session, Label> states = new HashMap<>();
+	private final Map<Session, Map<VoteDecider, Long>> eligible = new HashMap<>(); // counted once per session
+	private ScheduledFuture<?> refresh;
+
+	public TurnoutView(@Autowired SecurityService sec) {
+		Person p = sec.getAuthenticatedPerson();
+		boolean admin = Session.getRoles(p).contains(Role.ADMIN);
+		for (Session s : SessionRegistry.getSessions()) {
+			if (!admin && !s.isGuarantor(p))
+				continue;
+			List<VotingPaper> papers = new ArrayList<>();
+			List<VoteDecider> deciders = new ArrayList<>();
+			for (VotingPaper vp : s.getPapers())
+				addPaper(vp, papers, deciders);
+			eligible.put(s, s.howManyEligible(deciders));
+			Label state = new Label();
+			states.put(s, state);
+			Grid<VotingPaper> g = new Grid<>();
+			g.addColumn(VotingPaper::getTitle).setHeader("Paper");
+			g.addColumn(VotingPaper::getVoteCount).setHeader("Votes");
+			g.addColumn(vp -> ConsultResultView.round(turnout(s, vp) * 100, 2) + "%").setHeader("Turnout");
+			g.setItems(papers);
+			g.setAllRowsVisible(true);
+			grids.add(g);
+			add(new H3(s.getName()), state, g);
+		}
+		if (grids.isEmpty())
+			add(new Label("No session is currently available"));
+		refreshStates();
+	}
+
+	private static void addPaper(VotingPaper vp, List<VotingPaper> papers, List<VoteDecider> deciders) {
+		papers.add(vp);
+		deciders.add(vp.getDecider());
+		for (Choice c : vp.getChoices()) {
+			VotingPaper sub = vp.getSubPaper(c);
+			if (sub != null)
+				addPaper(sub, papers, deciders);
+		}
+	}
+
+	/**
+	 * Returns the turnout of the given paper of the given session, from its live
+	 * vote count and the eligible people counted when the view was built.
+	 */
+	double turnout(Session s, VotingPaper vp) {
+		Long n = eligible.get(s).get(vp.getDecider());
+		return n == null || n == 0 ? 0 : (double) vp.getVoteCount() / n;
+	}
+
+	private void refreshStates() {
+		states.forEach((s, l) -> l.setText("State: " + s.getState()));
+	}
+
+	/**
+	 * Reads the states and the vote counts again. Called by server push while the
+	 * view is attached.
+	 */
+	void update() {
+		refreshStates();
+		for (Grid<VotingPaper> g : grids)
+			g.getDataProvider().refreshAll();
+	}
+
+	@Override
+	protected void onAttach(AttachEvent attachEvent) {
+		UI ui = attachEvent.getUI();
+		refresh = refresher.scheduleWithFixedDelay(() -> ui.access(this::update), REFRESH_SECONDS, REFRESH_SECONDS, TimeUnit.SECONDS);
+	}
+
+	@Override
+	protected void onDetach(DetachEvent detachEvent) {
+		refresh.cancel(false);
+		refresh = null;
+	}
+}
@@ -55,8 +55,8 @@ public class CategoricalLayout extends VotingLayout {
 				if (newVp.getMethod() == ElectionMethod.CATEGORICAL) {
 					vl = new CategoricalLayout(voter, new Dialog(), newVp, votingButtons, votes, isReferendum, true);
 					vl.open();
-				} else if (newVp.getMethod() == ElectionMethod.ORDINAL) {
-					vl = new OrdinalLayout(voter, new Dialog(), vp, votingButtons, votes);
+				} else if (newVp.getMethod().isOrdinal()) {
+					vl = new OrdinalLayout(voter, new Dialog(), newVp, votingButtons, votes);
 					vl.open();
 				}
 				voteDialog.close();
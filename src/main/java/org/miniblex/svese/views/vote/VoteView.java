@@ -5,6 +5,7 @@ import java.util.List;
 
 import javax.annotation.security.PermitAll;
 
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.dialog.Dialog;
 import com.vaadin.flow.component.html.Label;
@@ -14,6 +15,7 @@ import com.vaadin.flow.router.Route;
 
 import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionRegistry;
 import org.miniblex.svese.model.VotingPaper;
 import org.miniblex.svese.security.SecurityService;
 import org.miniblex.svese.views.main.MainView;
@@ -42,14 +44,22 @@ public class VoteView extends VerticalLayout {
 		boolean morePapers;
 
 		try {
-			Session s = Session.getSession();
-			if (Session.isRunning()) {
-				morePapers = false;
+			morePapers = false;
+			boolean running = false;
+			for (Session s : SessionRegistry.getSessions()) {
+				if (!s.isRunning())
+					continue;
+				running = true;
 				for (VotingPaper vp : s.getPapers()) {
-					Button b = new Button(vp.getTitle(), e -> {
+					String title = s.getName().equals(SessionRegistry.DEFAULT_SESSION) ? vp.getTitle() : s.getName() + ": " + vp.getTitle();
+					Button b = new Button(title, e -> {
 						voteDialog = new Dialog();
 						switch (vp.getMethod()) {
 							case ORDINAL:
+							case SCHULZE:
+							case RANKED_PAIRS:
+							case IRV:
+							case STV:
 								vl = new OrdinalLayout(voter, voteDialog, vp, votingButtons, null);
 								vl.open();
 								break;
@@ -68,6 +78,7 @@ public class VoteView extends VerticalLayout {
 								break;
 						}
 					});
+					ComponentUtil.setData(b, VotingPaper.class, vp);
 					if (vp.hasVoted(sec.getAuthenticatedPerson())) {
 						b.setEnabled(false);
 					} else {
@@ -76,6 +87,8 @@ public class VoteView extends VerticalLayout {
 					}
 					votingButtons.add(b);
 				}
+			}
+			if (running) {
 				if (morePapers) {
 					for (Button b : votingButtons) {
 						buttonLayout.add(b);
@@ -86,7 +99,7 @@ public class VoteView extends VerticalLayout {
 					error.setText("Alreay voted in all the avaiable voting paper");
 				}
 			} else {
-				error.setText("The session has not been started yet");
+				error.setText("No session has been started yet");
 			}
 		} catch (NullPointerException e) {
 			error.setText("There is no session available");
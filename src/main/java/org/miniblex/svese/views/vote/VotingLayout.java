@@ -4,6 +4,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
+import com.vaadin.flow.component.ComponentUtil;
 import com.vaadin.flow.component.button.Button;
 import com.vaadin.flow.component.button.ButtonVariant;
 import com.vaadin.flow.component.dialog.Dialog;
@@ -14,7 +15,6 @@ import com.vaadin.flow.component.orderedlayout.HorizontalLayout;
 import com.vaadin.flow.component.orderedlayout.VerticalLayout;
 
 import org.miniblex.svese.model.Person;
-import org.miniblex.svese.model.Session;
 import org.miniblex.svese.model.Vote;
 import org.miniblex.svese.model.VotingPaper;
 
@@ -81,12 +81,10 @@ public abstract class VotingLayout extends VerticalLayout {
 	public void initializeConfirmButton(Button confirmButton) {
 		confirmButton.setText("Confirm");
 		confirmButton.addClickListener(e -> {
-			for (Map.Entry<VotingPaper, Vote> v : votes.entrySet()) {
-				v.getKey().addVote(v.getValue(), voter);
-				for (Button b : votingButtons) {
-					if (b.getText().equals(v.getKey().getTitle())) {
-						b.setEnabled(false);
-					}
+			vp.getSession().castBallot(voter, votes);
+			for (Button b : votingButtons) {
+				if (votes.containsKey(ComponentUtil.getData(b, VotingPaper.class))) {
+					b.setEnabled(false);
 				}
 			}
 			confirmDialog.close();
@@ -21,9 +21,13 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -35,10 +39,14 @@ import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.TestInstance;
+import org.miniblex.svese.export.ResultExporter;
 import org.miniblex.svese.model.AdultDecider;
 import org.miniblex.svese.model.CategoricalVote;
 import org.miniblex.svese.model.Choice;
@@ -48,13 +56,14 @@ import org.miniblex.svese.model.Person;
 import org.miniblex.svese.model.PersonRepository;
 import org.miniblex.svese.model.PreferencedVote;
 import org.miniblex.svese.model.ReferendumVote;
+import org.miniblex.svese.model.ResultTree;
 import org.miniblex.svese.model.Session;
 import org.miniblex.svese.model.Vote;
 import org.miniblex.svese.model.VotingPaper;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.context.SpringBootTest;
 
-@SpringBootTest
+@SpringBootTest(properties = "svese.journal.dir=")
 class TestModel {
 	private static List<String> people = List.of("DAD52", "ALL15", "ATU12", "JVN55");
 	private static String admStr = people.get(0);
@@ -188,7 +197,7 @@ class TestModel {
 
 		@Test
 		void sessionIsNotRunning() {
-			assertFalse(Session.isRunning());
+			assertFalse(Session.getSession().isRunning());
 		}
 
 		@Test
@@ -225,7 +234,7 @@ class TestModel {
 
 			@Test
 			void sessionRunning() {
-				assertTrue(Session.isRunning());
+				assertTrue(Session.getSession().isRunning());
 			}
 
 			@Test
@@ -272,7 +281,7 @@ class TestModel {
 
 				@Test
 				void isClosed() {
-					assertFalse(Session.isRunning());
+					assertFalse(Session.getSession().isRunning());
 				}
 
 				@Test
@@ -280,6 +289,50 @@ class TestModel {
 					getAllResults();
 				}
 
+				@Test
+				void resultTree() {
+					for (VotingPaper p : Session.getSession().getPapers()) {
+						ResultTree t = p.getResultTree();
+						assertSame(p.getResults(), t.getResults());
+						for (Choice c : p.getChoices()) {
+							VotingPaper sub = p.getSubPaper(c);
+							if (sub != null)
+								assertSame(sub.getResults(), t.getSubtree(c).getResults());
+						}
+					}
+				}
+
+				@Test
+				void exportResults() throws IOException {
+					Session s = Session.getSession();
+					int rows = 0;
+					for (VotingPaper p : s.getPapers())
+						rows += countChoices(p);
+					ByteArrayOutputStream csv = new ByteArrayOutputStream();
+					ResultExporter.writeCsv(s, csv);
+					assertEquals(rows + 1, csv.toString(StandardCharsets.UTF_8).split("\r\n").length);
+					ByteArrayOutputStream json = new ByteArrayOutputStream();
+					ResultExporter.writeJson(s, json);
+					JsonNode papers = new ObjectMapper().readTree(json.toByteArray()).get("papers");
+					assertEquals(s.getPapers().size(), papers.size());
+					for (int i = 0; i < papers.size(); i++)
+						assertEquals(s.getPapers().get(i).getResults().getTotalVotes(), papers.get(i).get("totalVotes").asLong());
+				}
+
+				private int countChoices(VotingPaper p) {
+					int n = p.getChoices().size();
+					for (Choice c : p.getChoices())
+						if (p.getSubPaper(c) != null)
+							n += countChoices(p.getSubPaper(c));
+					return n;
+				}
+
+				@Test
+				void resultsAreGeneratedOnce() {
+					for (VotingPaper p : Session.getSession().getPapers())
+						assertSame(p.getResults(), p.getResults());
+				}
+
 			}
 
 		}
@@ -17,11 +17,96 @@
 
 package org.miniblex.svese;
 
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
 import java.util.Collection;
+import java.util.List;
+import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import java.util.Random;
+import java.util.function.Consumer;
+
+import org.miniblex.svese.model.PaperResults;
+import org.miniblex.svese.model.PaperResultsRepository;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.PersonRepository;
 
 public class Utils {
+	/**
+	 * Makes {@link SVeSE#getPersonRepo} return a repository of the given people,
+	 * which can only be scanned and searched by SSN, or {@code null} if
+	 * {@code people} is {@code null}. For tests which run without the
+	 * application.
+	 */
+	public static void usePeople(List<Person> people) {
+		SVeSE context = null;
+		if (people != null) {
+			context = new SVeSE();
+			PersonRepository repo = (PersonRepository) Proxy.newProxyInstance(PersonRepository.class.getClassLoader(), new Class<?>[] { PersonRepository.class },
+					(InvocationHandler) (proxy, m, args) -> {
+						if (m.getName().equals("findById") && args.length == 1)
+							return people.stream().filter(p -> p.getSsn().equals(args[0])).findFirst();
+						if (!m.getName().equals("scan") || args.length != 1)
+							throw new UnsupportedOperationException(m.toString());
+						@SuppressWarnings("unchecked")
+						Consumer<Person> action = (Consumer<Person>) args[0];
+						people.forEach(action);
+						return null;
+					});
+			set(context, "personRepo", repo);
+		}
+		set(null, "context", context);
+	}
+
+	/**
+	 * Makes {@link SVeSE#getResultsRepo} return a repository of the results in the
+	 * given map, by id, which can only find and save results, or {@code null} if
+	 * {@code results} is {@code null}. Keeps the people of {@code usePeople},
+	 * which must be called first.
+	 */
+	public static void useResults(Map<String, PaperResults> results) {
+		SVeSE context = (SVeSE) get(null, "context");
+		if (context == null) {
+			context = new SVeSE();
+			set(null, "context", context);
+		}
+		PaperResultsRepository repo = null;
+		if (results != null) {
+			repo = (PaperResultsRepository) Proxy.newProxyInstance(PaperResultsRepository.class.getClassLoader(), new Class<?>[] { PaperResultsRepository.class },
+					(InvocationHandler) (proxy, m, args) -> {
+						if (m.getName().equals("findById") && args.length == 1)
+							return Optional.ofNullable(results.get(args[0]));
+						if (!m.getName().equals("save") || args.length != 1)
+							throw new UnsupportedOperationException(m.toString());
+						results.put(((PaperResults) args[0]).getId(), (PaperResults) args[0]);
+						return args[0];
+					});
+		}
+		set(context, "resultsRepo", repo);
+	}
+
+	private static Object get(SVeSE target, String field) {
+		try {
+			Field f = SVeSE.class.getDeclaredField(field);
+			f.setAccessible(true);
+			return f.get(target);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
+	private static void set(SVeSE target, String field, Object value) {
+		try {
+			Field f = SVeSE.class.getDeclaredField(field);
+			f.setAccessible(true);
+			f.set(target, value);
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException(e);
+		}
+	}
+
 	static <E> E randomElement(Collection<E> s) {
 		int rand = new Random().nextInt(s.size());
 		int i = 0;
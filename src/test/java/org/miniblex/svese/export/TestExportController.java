@@ -0,0 +1,106 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.export;
+
+import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.function.Executable;
+import org.miniblex.svese.model.Choice;
+import org.miniblex.svese.model.ElectionMethod;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.Role;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionFixtures;
+import org.miniblex.svese.model.SessionRegistry;
+import org.miniblex.svese.model.VotingPaper;
+import org.miniblex.svese.security.SecurityService;
+import org.springframework.http.HttpStatus;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+class TestExportController {
+	private static final Person ADMIN = SessionFixtures.person("ADMIN");
+	private static final Person GUARANTOR = SessionFixtures.person("GUARANTOR");
+	private static final Person VOTER = SessionFixtures.person("VOTER");
+
+	@BeforeAll
+	static void setAdmin() {
+		if (SessionRegistry.getSessions().isEmpty()) // otherwise set by the tests which added them
+			Session.setAdmin(ADMIN);
+	}
+
+	private static Session runningSession() {
+		Map<Choice, VotingPaper> choices = new LinkedHashMap<>();
+		choices.put(new Choice("A"), null);
+		choices.put(new Choice("B"), null);
+		return SessionFixtures.runningSession("export", List.of(GUARANTOR), new VotingPaper("Paper", choices, ElectionMethod.CATEGORICAL, null));
+	}
+
+	private static void assertStatus(HttpStatus status, Executable e) {
+		assertEquals(status, assertThrows(ResponseStatusException.class, e).getStatus());
+	}
+
+	private static ExportController controller(Person authenticated) {
+		SecurityService sec = mock(SecurityService.class);
+		when(sec.getAuthenticatedPerson()).thenReturn(authenticated);
+		ExportController c = new ExportController();
+		ReflectionTestUtils.setField(c, "sec", sec);
+		return c;
+	}
+
+	@Test
+	void anonymousIsForbidden() {
+		assertStatus(HttpStatus.FORBIDDEN, () -> controller(null).exportCsv("export"));
+		assertStatus(HttpStatus.FORBIDDEN, () -> controller(null).exportJson("export"));
+	}
+
+	@Test
+	void unknownSessionIsNotFound() {
+		assertStatus(HttpStatus.NOT_FOUND, () -> controller(GUARANTOR).exportCsv("no-such-session"));
+		assertStatus(HttpStatus.NOT_FOUND, () -> controller(GUARANTOR).exportJson("no-such-session"));
+	}
+
+	@Test
+	void onlyAdminAndGuarantorsMayExport() {
+		Session s = runningSession();
+		s.forceClose();
+		assertStatus(HttpStatus.FORBIDDEN, () -> ExportController.checkExportable(VOTER, s));
+		assertDoesNotThrow(() -> ExportController.checkExportable(GUARANTOR, s));
+		assumeTrue(Session.getRoles(ADMIN).contains(Role.ADMIN));
+		assertDoesNotThrow(() -> ExportController.checkExportable(ADMIN, s));
+	}
+
+	@Test
+	void runningSessionIsConflict() {
+		Session s = runningSession();
+		assertStatus(HttpStatus.CONFLICT, () -> ExportController.checkExportable(GUARANTOR, s));
+		assertStatus(HttpStatus.FORBIDDEN, () -> ExportController.checkExportable(VOTER, s)); // roles are checked first
+	}
+
+}
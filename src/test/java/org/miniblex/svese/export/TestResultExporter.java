@@ -0,0 +1,154 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.export;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.miniblex.svese.Utils;
+import org.miniblex.svese.model.AdultDecider;
+import org.miniblex.svese.model.CategoricalVote;
+import org.miniblex.svese.model.Choice;
+import org.miniblex.svese.model.ElectionMethod;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.PreferencedVote;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionFixtures;
+import org.miniblex.svese.model.VotingPaper;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+class TestResultExporter {
+	private static final List<Person> PEOPLE = new ArrayList<>();
+	private static final Person GUARANTOR = SessionFixtures.person("GUARANTOR");
+	private static Session session;
+
+	private static Map<Choice, VotingPaper> choices(String... names) {
+		Map<Choice, VotingPaper> res = new LinkedHashMap<>();
+		for (String n : names)
+			res.put(new Choice(n), null);
+		return res;
+	}
+
+	/**
+	 * Closes a session of ten people with a categorical paper, whose title and
+	 * choices need quoting in CSV, and a preferenced paper with a subpaper.
+	 */
+	@BeforeAll
+	static void closeSession() {
+		for (int i = 0; i < 10; i++)
+			PEOPLE.add(SessionFixtures.person("P" + i));
+		Utils.usePeople(PEOPLE);
+		Map<Choice, VotingPaper> parties = new LinkedHashMap<>();
+		parties.put(new Choice("Left"), new VotingPaper("Left candidates", choices("L1", "L2"), ElectionMethod.CATEGORICAL, new AdultDecider()));
+		parties.put(new Choice("Right"), null);
+		session = SessionFixtures.runningSession("export", List.of(GUARANTOR),
+				new VotingPaper("Mayor, \"best\"", choices("Rossi, Mario", "Line\nbreak", "Plain"), ElectionMethod.CATEGORICAL, new AdultDecider()),
+				new VotingPaper("Party", parties, ElectionMethod.PREFERENCED, new AdultDecider()));
+		VotingPaper mayor = session.getPapers().get(0);
+		VotingPaper party = session.getPapers().get(1);
+		VotingPaper left = party.getSubPaper(new Choice("Left"));
+		for (int i = 0; i < 4; i++) {
+			mayor.addVote(new CategoricalVote(new Choice(i < 3 ? "Rossi, Mario" : "Plain")), PEOPLE.get(i));
+			party.addVote(new PreferencedVote(new Choice(i < 3 ? "Left" : "Right")), PEOPLE.get(i));
+		}
+		left.addVote(new CategoricalVote(new Choice("L1")), PEOPLE.get(0));
+		left.addVote(new CategoricalVote(new Choice("L2")), PEOPLE.get(1));
+		left.addVote(new CategoricalVote(new Choice("L2")), PEOPLE.get(2));
+		session.forceClose();
+	}
+
+	@AfterAll
+	static void clearPeople() {
+		Utils.usePeople(null);
+	}
+
+	@Test
+	void csv() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ResultExporter.writeCsv(session, out);
+		assertEquals(String.join("\r\n",
+				"session,paper,parent,parent_choice,title,method,seats,total_votes,turnout,choice,score,relative_score,elected",
+				"export,0,,,\"Mayor, \"\"best\"\"\",CATEGORICAL,1,4,0.4,\"Rossi, Mario\",3,0.75,true",
+				"export,0,,,\"Mayor, \"\"best\"\"\",CATEGORICAL,1,4,0.4,Plain,1,0.25,false",
+				"export,0,,,\"Mayor, \"\"best\"\"\",CATEGORICAL,1,4,0.4,\"Line\nbreak\",0,0.0,false",
+				"export,1,,,Party,PREFERENCED,1,4,0.4,Left,3,0.75,true",
+				"export,1,,,Party,PREFERENCED,1,4,0.4,Right,1,0.25,false",
+				"export,2,1,Left,Left candidates,CATEGORICAL,1,3,0.3,L2,2,0.6666666666666666,true",
+				"export,2,1,Left,Left candidates,CATEGORICAL,1,3,0.3,L1,1,0.3333333333333333,false",
+				""), out.toString(StandardCharsets.UTF_8));
+	}
+
+	@Test
+	void json() throws IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ResultExporter.writeJson(session, out);
+		JsonNode root = new ObjectMapper().readTree(out.toByteArray());
+		assertEquals("export", root.get("session").asText());
+		assertEquals("CLOSED", root.get("state").asText());
+		JsonNode papers = root.get("papers");
+		assertEquals(2, papers.size());
+
+		JsonNode mayor = papers.get(0);
+		assertEquals("Mayor, \"best\"", mayor.get("title").asText());
+		assertEquals("CATEGORICAL", mayor.get("method").asText());
+		assertEquals(1, mayor.get("seats").asInt());
+		assertEquals(4, mayor.get("totalVotes").asLong());
+		assertEquals(0.4, mayor.get("turnout").asDouble());
+		JsonNode results = mayor.get("results");
+		assertEquals(3, results.size());
+		assertEquals("Rossi, Mario", results.get(0).get("choice").asText());
+		assertEquals(3, results.get(0).get("score").asLong());
+		assertEquals(0.75, results.get(0).get("relativeScore").asDouble());
+		assertTrue(results.get(0).get("elected").asBoolean());
+		assertEquals("Line\nbreak", results.get(2).get("choice").asText());
+		assertFalse(results.get(2).get("elected").asBoolean());
+		assertEquals(0, mayor.get("subpapers").size());
+
+		JsonNode subpapers = papers.get(1).get("subpapers");
+		assertEquals(1, subpapers.size());
+		assertEquals("Left", subpapers.get(0).get("choice").asText());
+		JsonNode left = subpapers.get(0).get("paper");
+		assertEquals("Left candidates", left.get("title").asText());
+		assertEquals(3, left.get("totalVotes").asLong());
+		assertEquals("L2", left.get("results").get(0).get("choice").asText());
+		assertEquals(0, left.get("subpapers").size());
+	}
+
+	@Test
+	void runningSessionIsNotExported() {
+		Session running = SessionFixtures.runningSession("running", List.of(GUARANTOR), new VotingPaper("Paper", choices("A", "B"), ElectionMethod.CATEGORICAL, null));
+		assertThrows(IllegalStateException.class, () -> ResultExporter.writeCsv(running, new ByteArrayOutputStream()));
+		assertThrows(IllegalStateException.class, () -> ResultExporter.writeJson(running, new ByteArrayOutputStream()));
+	}
+
+}
@@ -0,0 +1,105 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * People, papers and sessions shared by the tests.
+ */
+public final class SessionFixtures {
+	private static final Person GUARANTOR = person("GUARANTOR");
+
+	private SessionFixtures() {
+	}
+
+	/**
+	 * Returns a new adult person with the given SSN.
+	 */
+	public static Person person(String ssn) {
+		return new Person(ssn, "Mario", "Rossi", LocalDate.of(1980, 1, 1), "Milano");
+	}
+
+	/**
+	 * Returns a new paper with the given choices and no subpapers.
+	 */
+	static VotingPaper paper(String title, ElectionMethod method, VoteDecider decider, String... choices) {
+		Map<Choice, VotingPaper> map = new LinkedHashMap<>();
+		for (String c : choices)
+			map.put(new Choice(c), null);
+		return new VotingPaper(title, map, method, decider);
+	}
+
+	/**
+	 * Returns a new, unpublished session of the given papers, from now to the
+	 * next day. The papers of the session are copies of the given ones.
+	 */
+	static Session session(VotingPaper... papers) {
+		return session(LocalDateTime.now(), LocalDateTime.now().plusDays(1), papers);
+	}
+
+	/**
+	 * Returns a new, unpublished session of the given papers, which started the
+	 * day before and has been approved, hence is running.
+	 */
+	static Session runningSession(VotingPaper... papers) {
+		return runningSession("test", Arrays.asList(GUARANTOR), papers);
+	}
+
+	/**
+	 * Returns a new, unpublished session with the given name, guarantors and
+	 * papers, which started the day before and has been approved by all the
+	 * guarantors, hence is running.
+	 */
+	public static Session runningSession(String name, List<Person> guarantors, VotingPaper... papers) {
+		Session s = session(name, guarantors, LocalDateTime.now().minusDays(1), LocalDateTime.now().plusDays(1), papers);
+		s.setReady();
+		for (Person g : guarantors)
+			s.approve(g);
+		return s;
+	}
+
+	/**
+	 * Retires and removes every session of the {@link SessionRegistry}, which is
+	 * shared by the tests.
+	 */
+	public static void clearRegistry() {
+		SessionRegistry.clear();
+	}
+
+	private static Session session(LocalDateTime start, LocalDateTime end, VotingPaper... papers) {
+		return session("test", Arrays.asList(GUARANTOR), start, end, papers);
+	}
+
+	private static Session session(String name, List<Person> guarantors, LocalDateTime start, LocalDateTime end,
+			VotingPaper... papers) {
+		Session.SessionParameters params = new Session.SessionParameters();
+		params.setStart(start);
+		params.setEnd(end);
+		for (VotingPaper p : papers)
+			params.addPaper(p);
+		return new Session(name, params, new ArrayList<>(guarantors)); // may not contain the admin, which may be unset
+	}
+
+}
@@ -0,0 +1,87 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.Period;
+import java.time.ZoneOffset;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TestAdultDecider {
+
+	@AfterEach
+	void systemClock() {
+		DayClock.setClock(null);
+	}
+
+	private static void setDay(LocalDate day) {
+		DayClock.setClock(Clock.fixed(day.atTime(12, 0).toInstant(ZoneOffset.UTC), ZoneOffset.UTC));
+	}
+
+	@Test
+	void cutoffAgreesWithAge() {
+		// every birth date of a leap cycle, around the birthdays of both leap and common years
+		AdultDecider d = new AdultDecider();
+		LocalDate[] days = { LocalDate.of(2024, 2, 28), LocalDate.of(2024, 2, 29), LocalDate.of(2024, 3, 1), LocalDate.of(2025, 2, 28),
+				LocalDate.of(2025, 3, 1), LocalDate.of(2026, 12, 31) };
+		for (LocalDate today : days) {
+			LocalDate cutoff = d.cutoff(today);
+			for (LocalDate birth = today.minusYears(20); birth.isBefore(today.minusYears(16)); birth = birth.plusDays(1))
+				assertEquals(Period.between(birth, today).getYears() >= 18, !birth.isAfter(cutoff), birth + " on " + today);
+		}
+	}
+
+	@Test
+	void canVoteFollowsTheDay() {
+		AdultDecider d = new AdultDecider();
+		Person p = new Person("SSN", "Mario", "Rossi", LocalDate.of(2004, 2, 29), "Milano");
+		// born on February 29, of age on March 1 of a common year
+		setDay(LocalDate.of(2022, 2, 28));
+		assertFalse(d.canVote(p));
+		assertEquals(17, p.age());
+		setDay(LocalDate.of(2022, 3, 1));
+		assertTrue(d.canVote(p));
+		assertEquals(18, p.age());
+		setDay(LocalDate.of(2022, 2, 28)); // the clock went back
+		assertFalse(d.canVote(p));
+		assertFalse(d.canVote(null));
+	}
+
+	@Test
+	void dayClockFollowsTheZone() {
+		// 23:30 UTC is already the next day two hours east
+		DayClock.setClock(Clock.fixed(LocalDate.of(2022, 2, 27).atTime(23, 30).toInstant(ZoneOffset.UTC), ZoneOffset.ofHours(2)));
+		assertEquals(LocalDate.of(2022, 2, 28), DayClock.today());
+		assertEquals(LocalDate.of(2022, 2, 28).toEpochDay(), DayClock.epochDay());
+	}
+
+	@Test
+	void threshold() {
+		LocalDate today = LocalDate.of(2024, 2, 29);
+		assertEquals(today, new AdultDecider(0).cutoff(today));
+		assertEquals(LocalDate.of(2003, 2, 28), new AdultDecider(21).cutoff(today));
+	}
+
+}
@@ -0,0 +1,231 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.miniblex.svese.model.SessionFixtures.paper;
+import static org.miniblex.svese.model.SessionFixtures.person;
+
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.zip.CRC32;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestBallotJournal {
+	private static final Person FIRST = person("FIRST");
+	private static final Person SECOND = person("SECOND");
+
+	@TempDir
+	Path dir;
+
+	private final List<Session> sessions = new ArrayList<>(); // to retire, closing their journals
+
+	@AfterEach
+	void retireSessions() {
+		for (Session s : sessions)
+			s.retire();
+	}
+
+	/**
+	 * Returns a new session of the given papers from the given time to the day
+	 * after, journaled in a new journal in {@code dir}. The guarantors must not
+	 * be a {@link List#of} list, which cannot be searched for the unset admin.
+	 */
+	private Session journaled(LocalDateTime start, List<Person> guarantors, VotingPaper... papers) throws IOException {
+		Session.SessionParameters params = new Session.SessionParameters();
+		params.setStart(start);
+		params.setEnd(start.plusDays(1));
+		for (VotingPaper p : papers)
+			params.addPaper(p);
+		Session s = new Session("test", params, guarantors);
+		s.openJournal(dir, guarantors);
+		sessions.add(s);
+		return s;
+	}
+
+	private Session journaled(VotingPaper... papers) throws IOException {
+		return journaled(LocalDateTime.now().minusHours(1), Arrays.asList(FIRST), papers);
+	}
+
+	private Session replay() throws IOException {
+		Session s = BallotJournal.replay(BallotJournal.latest(dir), "test", SessionFixtures::person);
+		if (s != null)
+			sessions.add(s);
+		return s;
+	}
+
+	private Path eventLog() throws IOException {
+		return BallotJournal.latest(dir).resolve("events.log");
+	}
+
+	@Test
+	void eventsAreFramedByLengthAndChecksum() throws IOException {
+		journaled(paper("Paper", ElectionMethod.CATEGORICAL, null, "A", "B"));
+		ByteBuffer log = ByteBuffer.wrap(Files.readAllBytes(eventLog()));
+		int length = log.getInt();
+		int checksum = log.getInt();
+		assertEquals(log.remaining(), length); // the session is the only event
+		CRC32 crc = new CRC32();
+		crc.update(log.duplicate());
+		assertEquals((int) crc.getValue(), checksum);
+		assertEquals(1, log.get()); // SESSION
+	}
+
+	@Test
+	void tornEventIsDiscarded() throws IOException {
+		Session s = journaled(paper("Paper", ElectionMethod.CATEGORICAL, null, "A", "B"));
+		long sessionOnly = Files.size(eventLog());
+		s.setReady();
+		s.retire();
+		try (FileChannel ch = FileChannel.open(eventLog(), StandardOpenOption.WRITE)) {
+			ch.truncate(Files.size(eventLog()) - 1);
+		}
+		Session replayed = replay();
+		assertEquals(SessionState.INITIALIZED, replayed.getState());
+		assertEquals(sessionOnly, Files.size(eventLog())); // the journal appends after the last whole event
+		replayed.setReady();
+		replayed.retire();
+		assertEquals(SessionState.READY, replay().getState());
+	}
+
+	@Test
+	void corruptedEventIsDiscarded() throws IOException {
+		Session s = journaled(paper("Paper", ElectionMethod.CATEGORICAL, null, "A", "B"));
+		s.setReady();
+		s.retire();
+		try (FileChannel ch = FileChannel.open(eventLog(), StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.wrap(new byte[] { 42 }), Files.size(eventLog()) - 1); // the type of READY
+		}
+		assertEquals(SessionState.INITIALIZED, replay().getState());
+	}
+
+	@Test
+	void latestIsTheLastSessionWithAnEventLog() throws IOException {
+		assertNull(BallotJournal.latest(dir.resolve("missing")));
+		assertNull(BallotJournal.latest(dir));
+		for (String name : List.of("session-1", "session-2", "other-3"))
+			Files.createFile(Files.createDirectory(dir.resolve(name)).resolve("events.log"));
+		Files.createDirectory(dir.resolve("session-4"));
+		assertEquals(dir.resolve("session-2"), BallotJournal.latest(dir));
+	}
+
+	@Test
+	void journalsCreatedTogetherAreDistinct() throws IOException {
+		Set<String> ids = new HashSet<>();
+		for (int i = 0; i < 10; i++) {
+			try (BallotJournal j = BallotJournal.create(dir)) {
+				assertTrue(ids.add(j.getId()), j.getId());
+			}
+		}
+	}
+
+	@Test
+	void replaysApprovals() throws IOException {
+		Session s = journaled(LocalDateTime.now().plusDays(1), Arrays.asList(FIRST, SECOND), paper("Paper", ElectionMethod.CATEGORICAL, null, "A", "B"));
+		s.setReady();
+		s.approve(FIRST);
+		s.retire();
+		Session replayed = replay();
+		assertEquals(SessionState.READY, replayed.getState());
+		assertTrue(replayed.hasApproved(FIRST));
+		assertFalse(replayed.hasApproved(SECOND));
+		replayed.approve(SECOND);
+		replayed.retire();
+		replayed = replay();
+		assertEquals(SessionState.APPROVED, replayed.getState()); // starts the day after
+		assertTrue(replayed.checkApproval());
+	}
+
+	@Test
+	void replayedSessionResumesWithItsBallots() throws IOException {
+		Session s = journaled(paper("Categorical", ElectionMethod.CATEGORICAL, null, "A", "B"), paper("Ordinal", ElectionMethod.ORDINAL, null, "A", "B", "C"));
+		s.setReady();
+		s.approve(FIRST);
+		assertEquals(SessionState.RUNNING, s.getState());
+		VotingPaper categorical = s.getPapers().get(0);
+		VotingPaper ordinal = s.getPapers().get(1);
+		s.castBallot(person("P0"), Map.of(categorical, new CategoricalVote(new Choice("A")), ordinal, new OrdinalVote(List.of(new Choice("C"), new Choice("A"), new Choice("B")))));
+		s.castBallot(person("P1"), Map.of(categorical, new CategoricalVote(new Choice("B"))));
+		s.retire();
+
+		Session replayed = replay();
+		assertEquals(SessionState.RUNNING, replayed.getState()); // fired once the ballots are loaded
+		categorical = replayed.getPapers().get(0);
+		ordinal = replayed.getPapers().get(1);
+		assertEquals(2, categorical.getVoteCount());
+		assertEquals(1, ordinal.getVoteCount());
+		assertTrue(ordinal.hasVoted(person("P0")));
+		assertFalse(ordinal.hasVoted(person("P1")));
+		assertThrows(IllegalArgumentException.class, () -> replayed.castBallot(person("P1"), Map.of(replayed.getPapers().get(0), new CategoricalVote(new Choice("A")))));
+		replayed.castBallot(person("P2"), Map.of(ordinal, new OrdinalVote(List.of(new Choice("A")))));
+		replayed.forceClose();
+		replayed.retire();
+
+		Session closed = replay();
+		assertEquals(SessionState.CLOSED, closed.getState());
+		assertEquals(2, closed.getPapers().get(1).getVoteCount());
+	}
+
+	@Test
+	void decidersAreReplayed() throws IOException {
+		VoteDecider decider = new AdultDecider(21).and(new BirthPlaceDecider(List.of("Milano")).negate()).or(new SsnListDecider(List.of("P0", "P1")));
+		Session s = journaled(paper("Paper", ElectionMethod.CATEGORICAL, decider, "A", "B"));
+		s.retire();
+		assertEquals(decider, replay().getPapers().get(0).getDecider());
+	}
+
+	/**
+	 * A decider which is not part of the model.
+	 */
+	private static final class UnknownDecider implements VoteDecider {
+		private static final long serialVersionUID = 1L;
+
+		@Override
+		public boolean canVote(Person p) {
+			return p != null;
+		}
+
+	}
+
+	@Test
+	void unknownDeciderIsRejected() throws IOException {
+		Session s = journaled(paper("Paper", ElectionMethod.CATEGORICAL, new UnknownDecider(), "A", "B"));
+		s.retire();
+		assertThrows(InvalidClassException.class, this::replay);
+	}
+
+}
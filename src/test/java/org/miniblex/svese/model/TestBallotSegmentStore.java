@@ -0,0 +1,125 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.miniblex.svese.model.SessionFixtures.paper;
+import static org.miniblex.svese.model.SessionFixtures.person;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class TestBallotSegmentStore {
+	private static final int SEGMENT_SIZE = 4096;
+
+	@TempDir
+	Path dir;
+
+	/**
+	 * Returns a new session with a categorical and an ordinal paper.
+	 */
+	private static Session session() {
+		return SessionFixtures.session(paper("Categorical", ElectionMethod.CATEGORICAL, null, "A", "B", "C"), paper("Ordinal", ElectionMethod.ORDINAL, null, "A", "B", "C"));
+	}
+
+	private List<Path> segments() throws IOException {
+		try (Stream<Path> files = Files.list(dir)) {
+			return files.filter(f -> f.getFileName().toString().endsWith(".seg")).sorted().toList();
+		}
+	}
+
+	private static void appendBoth(BallotSegmentStore store, String ssn) {
+		store.append(new int[] { 0, 1 }, ssn, new int[][] { { 1 }, { 2, 0 } });
+	}
+
+	@Test
+	void segmentRollover() throws IOException {
+		BallotSegmentStore store = BallotSegmentStore.open(dir, session(), SEGMENT_SIZE);
+		int perSegment = SEGMENT_SIZE / store.getRecordSize();
+		int voters = 3 * perSegment / 2 + 1; // fills a segment, with an odd number of slots some groups do not fit in
+		for (int i = 0; i < voters; i++)
+			appendBoth(store, "P" + i);
+		store.close();
+		int rolled = segments().size();
+		assertTrue(rolled >= 3, rolled + " segments");
+		store = BallotSegmentStore.open(dir, session(), SEGMENT_SIZE);
+		store.append(new int[] { 0 }, "LAST", new int[][] { { 2 } });
+		store.close();
+		assertEquals(rolled + 1, segments().size()); // a reopened store starts a new segment
+
+		Session s = session();
+		assertEquals(2 * voters + 1, BallotSegmentStore.replay(dir, s));
+		for (int i = 0; i < voters; i++) {
+			assertTrue(s.getPaper(0).hasVoted(person("P" + i)));
+			assertTrue(s.getPaper(1).hasVoted(person("P" + i)));
+		}
+		assertTrue(s.getPaper(0).hasVoted(person("LAST")));
+		assertFalse(s.getPaper(1).hasVoted(person("LAST")));
+	}
+
+	@Test
+	void partialGroupIsNotReplayed() throws IOException {
+		BallotSegmentStore store = BallotSegmentStore.open(dir, session(), SEGMENT_SIZE);
+		int recordSize = store.getRecordSize();
+		appendBoth(store, "TORN");
+		appendBoth(store, "WHOLE");
+		store.close();
+		// the second record of the first group was reserved but not written before a crash
+		try (FileChannel ch = FileChannel.open(segments().get(0), StandardOpenOption.WRITE)) {
+			ch.write(ByteBuffer.allocate(recordSize), recordSize);
+		}
+		Session s = session();
+		assertEquals(2, BallotSegmentStore.replay(dir, s));
+		for (int id = 0; id < 2; id++) {
+			assertFalse(s.getPaper(id).hasVoted(person("TORN")));
+			assertTrue(s.getPaper(id).hasVoted(person("WHOLE")));
+		}
+	}
+
+	@Test
+	void failedFlushIsNotReplayed() throws IOException {
+		BallotSegmentStore store = BallotSegmentStore.open(dir, session(), SEGMENT_SIZE);
+		store.setForcer((seg, offset, length) -> {
+			throw new UncheckedIOException(new IOException("disk failure"));
+		});
+		assertThrows(UncheckedIOException.class, () -> appendBoth(store, "FAILED"));
+		store.setForcer((seg, offset, length) -> seg.force(offset, length));
+		appendBoth(store, "FLUSHED");
+		store.close();
+		Session s = session();
+		assertEquals(2, BallotSegmentStore.replay(dir, s));
+		for (int id = 0; id < 2; id++) {
+			assertFalse(s.getPaper(id).hasVoted(person("FAILED")));
+			assertTrue(s.getPaper(id).hasVoted(person("FLUSHED")));
+		}
+	}
+
+}
@@ -0,0 +1,142 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestCompactBallots {
+	private static ForkJoinPool pool; // more threads than the common pool may have
+
+	@BeforeAll
+	static void createPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	static void shutdownPool() {
+		pool.shutdown();
+	}
+
+	private static int[] randomOrder(Random r, int n, int length) {
+		List<Integer> all = new ArrayList<>();
+		for (int i = 0; i < n; i++)
+			all.add(i);
+		int[] res = new int[length];
+		for (int i = 0; i < length; i++)
+			res[i] = all.remove(r.nextInt(all.size()));
+		return res;
+	}
+
+	@Test
+	void packingIsBijective() {
+		int n = 5;
+		Set<Long> packed = new HashSet<>();
+		Random r = new Random(42);
+		for (int i = 0; i < 10000; i++) {
+			int[] order = randomOrder(r, n, r.nextInt(n + 1));
+			long p = CompactBallots.pack(order, n);
+			assertArrayEquals(order, CompactBallots.unpack(p, n));
+			packed.add(p);
+		}
+		assertEquals(326, packed.size()); // number of partial permutations of 5 elements
+	}
+
+	@Test
+	void packingLargestPaper() {
+		int n = CompactBallots.MAX_PACKED_CHOICES;
+		int[] worst = IntStream.range(0, n).map(i -> n - 1 - i).toArray();
+		assertArrayEquals(worst, CompactBallots.unpack(CompactBallots.pack(worst, n), n));
+	}
+
+	@Test
+	void concurrentStorage() {
+		for (ElectionMethod method : List.of(ElectionMethod.CATEGORICAL, ElectionMethod.ORDINAL)) {
+			for (int n : new int[] { 3, 300 }) {
+				CompactBallots ballots = new CompactBallots(method, n);
+				long[] expected = new long[n];
+				IntStream.range(0, 20000).parallel().forEach(i -> {
+					Random r = new Random(i);
+					ballots.add(method == ElectionMethod.ORDINAL ? randomOrder(r, n, 1 + r.nextInt(n)) : new int[] { r.nextInt(n) });
+				});
+				for (int i = 0; i < 20000; i++) {
+					Random r = new Random(i);
+					expected[method == ElectionMethod.ORDINAL ? randomOrder(r, n, 1 + r.nextInt(n))[0] : r.nextInt(n)]++;
+				}
+				long[] firsts = new long[n];
+				ballots.forEach(b -> firsts[b[0]]++);
+				assertEquals(20000, ballots.size());
+				assertArrayEquals(expected, firsts);
+			}
+		}
+	}
+
+	@Test
+	void readsWhileAdding() throws InterruptedException {
+		// unwritten slots decode as choice 0, which is never added
+		CompactBallots ballots = new CompactBallots(ElectionMethod.CATEGORICAL, 2);
+		List<Thread> writers = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread w = new Thread(() -> {
+				for (int i = 0; i < 50000; i++)
+					ballots.add(new int[] { 1 });
+			});
+			writers.add(w);
+			w.start();
+		}
+		while (ballots.size() < 4 * 50000) {
+			ballots.forEach(b -> assertEquals(1, b[0]));
+			assertEquals(0, ballots.tally(ForkJoinPool.commonPool())[0]);
+		}
+		for (Thread w : writers)
+			w.join();
+		assertArrayEquals(new long[] { 0, 4 * 50000 }, ballots.tally(ForkJoinPool.commonPool()));
+	}
+
+	@Test
+	void parallelTally() {
+		for (ElectionMethod method : List.of(ElectionMethod.CATEGORICAL, ElectionMethod.ORDINAL)) {
+			for (int n : new int[] { 3, 300 }) {
+				CompactBallots ballots = new CompactBallots(method, n);
+				long[] expected = new long[n];
+				Random r = new Random(n);
+				for (int i = 0; i < 100000; i++) { // spans several tasks, the last one on a partial chunk
+					int[] b = method == ElectionMethod.ORDINAL ? randomOrder(r, n, 1 + r.nextInt(Math.min(n, 20))) : new int[] { r.nextInt(n) };
+					ballots.add(b);
+					for (int j = 0; j < b.length; j++)
+						expected[b[j]] += method == ElectionMethod.ORDINAL ? b.length - j - 1 : 1;
+				}
+				assertArrayEquals(expected, ballots.tally(pool));
+				assertArrayEquals(new long[n], new CompactBallots(method, n).tally(ForkJoinPool.commonPool()));
+			}
+		}
+	}
+
+}
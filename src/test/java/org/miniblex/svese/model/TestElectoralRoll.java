@@ -0,0 +1,85 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.jupiter.api.Test;
+
+class TestElectoralRoll {
+
+	@Test
+	void bitmapChunks() {
+		// a sparse chunk, a dense chunk, an empty chunk and a full chunk
+		Random r = new Random(42);
+		BitSet bits = new BitSet();
+		for (int i = 0; i < 100; i++)
+			bits.set(r.nextInt(1 << 16));
+		for (int i = 1 << 16; i < 2 << 16; i++)
+			if (r.nextInt(3) == 0)
+				bits.set(i);
+		bits.set(3 << 16, 4 << 16);
+		EligibilityBitmap b = EligibilityBitmap.of(bits);
+		assertEquals(bits.cardinality(), b.cardinality());
+		for (int i = 0; i < 5 << 16; i++)
+			assertEquals(bits.get(i), b.contains(i), "index " + i);
+		assertFalse(b.contains(-1));
+		assertFalse(b.contains(Integer.MAX_VALUE));
+	}
+
+	@Test
+	void emptyBitmap() {
+		EligibilityBitmap b = EligibilityBitmap.of(new BitSet());
+		assertEquals(0, b.cardinality());
+		assertFalse(b.contains(0));
+	}
+
+	@Test
+	void roll() {
+		LocalDate today = LocalDate.now();
+		List<Person> people = new ArrayList<>();
+		for (int i = 0; i < 10000; i++)
+			people.add(new Person("SSN" + i, "Mario", "Rossi", today.minusYears(i % 40).minusDays(1), "Milano"));
+		Collections.shuffle(people, new Random(42));
+		VoteDecider adult = new AdultDecider();
+		VoteDecider senior = new AdultDecider(30);
+		ElectoralRoll roll = ElectoralRoll.build(people, Set.of(adult, senior));
+		assertEquals(people.size(), roll.size());
+		for (Person p : people) {
+			assertTrue(roll.indexOf(p.getSsn()) >= 0);
+			assertEquals(adult.canVote(p), roll.isEligible(adult, p.getSsn()));
+			assertEquals(senior.canVote(p), roll.isEligible(new AdultDecider(30), p.getSsn()));
+		}
+		assertEquals(people.stream().filter(adult::canVote).count(), roll.count(adult));
+		assertEquals(-1, roll.indexOf("UNKNOWN"));
+		assertFalse(roll.isEligible(adult, "UNKNOWN"));
+		assertFalse(roll.isEligible(new AdultDecider(50), "SSN0"));
+		assertEquals(-1, roll.count(new AdultDecider(50)));
+	}
+
+}
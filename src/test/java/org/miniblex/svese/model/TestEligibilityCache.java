@@ -0,0 +1,67 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class TestEligibilityCache {
+
+	@AfterEach
+	void clear() {
+		EligibilityCache.invalidate();
+	}
+
+	@Test
+	void validForVersionAndDay() {
+		VoteDecider d = new AdultDecider();
+		long v = EligibilityCache.version();
+		EligibilityCache.put(d, v, 100, 42);
+		EligibilityCache.put(null, v, 100, 50);
+		assertEquals(42, EligibilityCache.get(d, v, 100));
+		assertEquals(42, EligibilityCache.get(new AdultDecider(18), v, 100));
+		assertEquals(50, EligibilityCache.get(null, v, 100));
+		assertEquals(-1, EligibilityCache.get(new AdultDecider(21), v, 100));
+		assertEquals(-1, EligibilityCache.get(d, v, 101)); // the next day
+		EligibilityCache.invalidate();
+		assertEquals(-1, EligibilityCache.get(d, v, 100));
+		assertEquals(-1, EligibilityCache.get(d, EligibilityCache.version(), 100));
+	}
+
+	@Test
+	void bulkWritesInvalidate() {
+		VoteDecider d = new AdultDecider();
+		EligibilityCache.put(d, EligibilityCache.version(), 100, 42);
+		PersonRepository.peopleChanged();
+		assertEquals(-1, EligibilityCache.get(d, EligibilityCache.version(), 100));
+	}
+
+	@Test
+	void staleCountsAreNotStored() {
+		// counted while a person was written
+		VoteDecider d = new AdultDecider();
+		long v = EligibilityCache.version();
+		EligibilityCache.invalidate();
+		EligibilityCache.put(d, v, 100, 42);
+		assertEquals(-1, EligibilityCache.get(d, v, 100));
+		assertEquals(-1, EligibilityCache.get(d, EligibilityCache.version(), 100));
+	}
+
+}
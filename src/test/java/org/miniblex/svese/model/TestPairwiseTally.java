@@ -0,0 +1,113 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestPairwiseTally {
+	private static ForkJoinPool pool; // more threads than the common pool may have
+
+	@BeforeAll
+	static void createPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	static void shutdownPool() {
+		pool.shutdown();
+	}
+
+	private static void count(Tally t, int times, int... ballot) {
+		for (int i = 0; i < times; i++)
+			t.count(ballot);
+	}
+
+	@Test
+	void schulze() {
+		// A=0, B=1, C=2, D=3, E=4: the ranking is E > A > C > B > D
+		Tally t = Tally.of(ElectionMethod.SCHULZE, 5, 1);
+		count(t, 5, 0, 2, 1, 4, 3);
+		count(t, 5, 0, 3, 4, 2, 1);
+		count(t, 8, 1, 4, 3, 0, 2);
+		count(t, 3, 2, 0, 1, 4, 3);
+		count(t, 7, 2, 0, 4, 1, 3);
+		count(t, 2, 2, 1, 0, 3, 4);
+		count(t, 7, 3, 2, 4, 1, 0);
+		count(t, 8, 4, 1, 0, 3, 2);
+		assertArrayEquals(new long[] { 3, 1, 2, 0, 4 }, t.scores());
+	}
+
+	@Test
+	void condorcetWinner() {
+		// Memphis=0, Nashville=1, Chattanooga=2, Knoxville=3
+		for (ElectionMethod method : new ElectionMethod[] { ElectionMethod.SCHULZE, ElectionMethod.RANKED_PAIRS }) {
+			Tally t = Tally.of(method, 4, 1);
+			count(t, 42, 0, 1, 2, 3);
+			count(t, 26, 1, 2, 3, 0);
+			count(t, 15, 2, 3, 1, 0);
+			count(t, 17, 3, 2, 1, 0);
+			assertArrayEquals(new long[] { 0, 3, 2, 1 }, t.scores());
+		}
+	}
+
+	@Test
+	void cycle() {
+		// A > B (6 to 3), B > C (7 to 2), C > A (5 to 4): the weakest victory is dropped
+		for (ElectionMethod method : new ElectionMethod[] { ElectionMethod.SCHULZE, ElectionMethod.RANKED_PAIRS }) {
+			Tally t = Tally.of(method, 3, 1);
+			count(t, 4, 0, 1, 2);
+			count(t, 3, 1, 2, 0);
+			count(t, 2, 2, 0, 1);
+			assertArrayEquals(new long[] { 2, 1, 0 }, t.scores());
+		}
+	}
+
+	@Test
+	void unrankedChoicesLose() {
+		Tally t = Tally.of(ElectionMethod.RANKED_PAIRS, 4, 1);
+		count(t, 3, 2);
+		count(t, 2, 1, 0);
+		assertArrayEquals(new long[] { 1, 2, 3, 0 }, t.scores());
+	}
+
+	@Test
+	void parallelRecount() {
+		int n = 7;
+		CompactBallots ballots = new CompactBallots(ElectionMethod.SCHULZE, n);
+		Tally counted = Tally.of(ElectionMethod.SCHULZE, n, 1);
+		Random r = new Random(7);
+		for (int i = 0; i < 50000; i++) {
+			int[] b = r.ints(0, n).distinct().limit(1 + r.nextInt(n)).toArray();
+			if (b[0] < 3) // makes the ranking uneven
+				b = new int[] { b[0] };
+			ballots.add(b);
+			counted.count(b);
+		}
+		Tally recounted = Tally.of(ElectionMethod.SCHULZE, n, 1);
+		recounted.recount(ballots, pool);
+		assertArrayEquals(counted.scores(), recounted.scores());
+	}
+
+}
@@ -0,0 +1,72 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.TreeMap;
+
+import org.junit.jupiter.api.Test;
+
+class TestPersonRepository {
+
+	/**
+	 * Returns a repository of the given number of people, which only implements
+	 * the unfiltered page query and counts how many times it is run.
+	 */
+	private static PersonRepository repository(int people, int[] queries) {
+		TreeMap<String, Person> bySsn = new TreeMap<>();
+		for (int i = 0; i < people; i++) {
+			Person p = SessionFixtures.person(String.format("SSN%06d", i));
+			bySsn.put(p.getSsn(), p);
+		}
+		return (PersonRepository) Proxy.newProxyInstance(PersonRepository.class.getClassLoader(), new Class<?>[] { PersonRepository.class },
+				(InvocationHandler) (proxy, m, args) -> {
+					if (m.isDefault())
+						return InvocationHandler.invokeDefault(proxy, m, args);
+					if (!m.getName().equals("findPageAfter") || args[1] != null)
+						throw new UnsupportedOperationException(m.toString());
+					queries[0]++;
+					List<Person> page = new ArrayList<>();
+					for (Person p : bySsn.tailMap((String) args[0], false).values()) {
+						if (page.size() == (int) args[2])
+							break;
+						page.add(p);
+					}
+					return page;
+				});
+	}
+
+	@Test
+	void scanPages() {
+		for (int people : new int[] { 0, 1, PersonRepository.SCAN_PAGE_SIZE, 2 * PersonRepository.SCAN_PAGE_SIZE + 1 }) {
+			int[] queries = { 0 };
+			List<Person> scanned = new ArrayList<>();
+			repository(people, queries).scan(scanned::add);
+			assertEquals(people, scanned.size());
+			for (int i = 0; i < people; i++)
+				assertEquals(String.format("SSN%06d", i), scanned.get(i).getSsn());
+			assertEquals(people / PersonRepository.SCAN_PAGE_SIZE + 1, queries[0], people + " people");
+		}
+	}
+
+}
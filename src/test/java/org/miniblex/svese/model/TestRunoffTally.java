@@ -0,0 +1,107 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestRunoffTally {
+	private static ForkJoinPool pool; // more threads than the common pool may have
+
+	@BeforeAll
+	static void createPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	static void shutdownPool() {
+		pool.shutdown();
+	}
+
+	private static void count(Tally t, int times, int... ballot) {
+		for (int i = 0; i < times; i++)
+			t.count(ballot);
+	}
+
+	@Test
+	void instantRunoff() {
+		// Memphis=0, Nashville=1, Chattanooga=2, Knoxville=3: eliminated are
+		// Chattanooga, Nashville and Memphis
+		Tally t = Tally.of(ElectionMethod.IRV, 4, 1);
+		count(t, 42, 0, 1, 2, 3);
+		count(t, 26, 1, 2, 3, 0);
+		count(t, 15, 2, 3, 1, 0);
+		count(t, 17, 3, 2, 1, 0);
+		assertArrayEquals(new long[] { 2, 1, 0, 3 }, t.scores());
+	}
+
+	@Test
+	void singleTransferableVote() {
+		// Orange=0, Pear=1, Chocolate=2, Strawberry=3, Hamburger=4: Chocolate
+		// reaches the quota of 6 and half of its votes are transferred, Pear is
+		// eliminated and elects Orange, Hamburger is eliminated and Strawberry takes
+		// the last seat
+		Tally t = Tally.of(ElectionMethod.STV, 5, 3);
+		count(t, 4, 0);
+		count(t, 2, 1, 0);
+		count(t, 8, 2, 3);
+		count(t, 4, 2, 4);
+		count(t, 1, 3);
+		count(t, 1, 4);
+		assertArrayEquals(new long[] { 3, 0, 4, 2, 1 }, t.scores());
+	}
+
+	@Test
+	void parallelRecount() {
+		int n = 6;
+		CompactBallots ballots = new CompactBallots(ElectionMethod.STV, n);
+		Tally counted = Tally.of(ElectionMethod.STV, n, 2);
+		Random r = new Random(6);
+		for (int i = 0; i < 50000; i++) {
+			int[] b = r.ints(0, n).distinct().limit(1 + r.nextInt(n)).toArray();
+			if (b[0] < 2) // makes the ranking uneven
+				b = new int[] { b[0] };
+			ballots.add(b);
+			counted.count(b);
+		}
+		Tally recounted = Tally.of(ElectionMethod.STV, n, 2);
+		recounted.recount(ballots, pool);
+		assertArrayEquals(counted.scores(), recounted.scores());
+	}
+
+	@Test
+	void seats() {
+		Map<Choice, VotingPaper> choices = new LinkedHashMap<>();
+		for (int i = 0; i < 3; i++)
+			choices.put(new Choice("c" + i), null);
+		assertEquals(2, new VotingPaper("stv", choices, ElectionMethod.STV, null, 2).getSeats());
+		assertThrows(IllegalArgumentException.class, () -> new VotingPaper("irv", choices, ElectionMethod.IRV, null, 2));
+		assertThrows(IllegalArgumentException.class, () -> new VotingPaper("stv", choices, ElectionMethod.STV, null, 4));
+	}
+
+}
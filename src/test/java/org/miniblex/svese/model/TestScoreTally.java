@@ -0,0 +1,121 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.miniblex.svese.model.SessionFixtures.paper;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+class TestScoreTally {
+	private static ForkJoinPool pool; // more threads than the common pool may have
+
+	@BeforeAll
+	static void createPool() {
+		pool = new ForkJoinPool(4);
+	}
+
+	@AfterAll
+	static void shutdownPool() {
+		pool.shutdown();
+	}
+
+	/**
+	 * Returns the value given by the given order to the given choice, as
+	 * computed before scoring in one pass.
+	 */
+	private static int referenceValue(List<Choice> order, Choice c) {
+		int idx = order.indexOf(c);
+		return idx < 0 ? 0 : order.size() - idx - 1;
+	}
+
+	/**
+	 * Checks that counting the given votes one by one and recounting them gives
+	 * the scores of the reference values, and returns the scores.
+	 */
+	private static long[] checkScores(VotingPaper paper, List<OrdinalVote> votes) {
+		List<Choice> choices = new ArrayList<>(paper.getChoices());
+		long[] expected = new long[choices.size()];
+		Tally t = Tally.of(ElectionMethod.ORDINAL, choices.size(), 1);
+		CompactBallots ballots = new CompactBallots(ElectionMethod.ORDINAL, choices.size());
+		for (OrdinalVote v : votes) {
+			int[] ballot = paper.encode(v);
+			t.count(ballot);
+			ballots.add(ballot);
+			for (Choice c : paper) {
+				int expectedValue = referenceValue(v.getOrder(), c);
+				assertEquals(expectedValue, v.getValue(c));
+				expected[choices.indexOf(c)] += expectedValue;
+			}
+		}
+		assertArrayEquals(expected, t.scores());
+		Tally recounted = Tally.of(ElectionMethod.ORDINAL, choices.size(), 1);
+		recounted.recount(ballots, pool);
+		assertArrayEquals(expected, recounted.scores());
+		return expected;
+	}
+
+	private static OrdinalVote vote(String... order) {
+		List<Choice> res = new ArrayList<>();
+		for (String c : order)
+			res.add(new Choice(c));
+		return new OrdinalVote(res);
+	}
+
+	@Test
+	void ties() {
+		VotingPaper paper = paper("Paper", ElectionMethod.ORDINAL, null, "A", "B", "C");
+		long[] scores = checkScores(paper, List.of(vote("A", "B", "C"), vote("B", "A", "C")));
+		assertArrayEquals(new long[] { 3, 3, 0 }, scores);
+		scores = checkScores(paper, List.of(vote("A", "B", "C"), vote("B", "A", "C"), vote("C", "A", "B"), vote("C", "B", "A")));
+		assertArrayEquals(new long[] { 4, 4, 4 }, scores);
+	}
+
+	@Test
+	void partialOrders() {
+		VotingPaper paper = paper("Paper", ElectionMethod.ORDINAL, null, "A", "B", "C", "D");
+		long[] scores = checkScores(paper, List.of(vote("A"), vote("B", "A"), vote("C", "D", "A"), vote()));
+		assertArrayEquals(new long[] { 0, 1, 2, 1 }, scores); // a single choice is worth nothing
+	}
+
+	@Test
+	void randomOrders() {
+		String[] names = new String[30];
+		for (int i = 0; i < names.length; i++)
+			names[i] = "C" + i;
+		VotingPaper paper = paper("Paper", ElectionMethod.ORDINAL, null, names);
+		Random r = new Random(42);
+		List<OrdinalVote> votes = new ArrayList<>();
+		for (int i = 0; i < 5000; i++) {
+			List<Choice> order = new ArrayList<>(paper.getChoices());
+			Collections.shuffle(order, r);
+			votes.add(new OrdinalVote(order.subList(0, r.nextInt(order.size() + 1))));
+		}
+		checkScores(paper, votes);
+	}
+
+}
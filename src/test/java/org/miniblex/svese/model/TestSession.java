@@ -0,0 +1,105 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.miniblex.svese.model.SessionFixtures.paper;
+import static org.miniblex.svese.model.SessionFixtures.person;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.miniblex.svese.Utils;
+
+class TestSession {
+
+	@AfterEach
+	void clearPeople() {
+		Utils.usePeople(null);
+		EligibilityCache.invalidate();
+	}
+
+	/**
+	 * Returns the number of the people "P0", "P1", ... before the given one who
+	 * voted for the given paper.
+	 */
+	private static long voters(VotingPaper paper, int people) {
+		return IntStream.range(0, people).filter(i -> paper.hasVoted(person("P" + i))).count();
+	}
+
+	@Test
+	void ballotsAreNotCountedAfterClosing() throws InterruptedException {
+		Session s = SessionFixtures.runningSession(paper("Paper", ElectionMethod.CATEGORICAL, null, "A", "B"));
+		assertEquals(SessionState.RUNNING, s.getState());
+		VotingPaper paper = s.getPapers().get(0);
+		Vote v = new CategoricalVote(new Choice("A"));
+		AtomicInteger next = new AtomicInteger();
+		AtomicLong accepted = new AtomicLong();
+		List<Thread> threads = new ArrayList<>();
+		for (int t = 0; t < 4; t++) {
+			Thread voter = new Thread(() -> {
+				while (true) {
+					try {
+						s.castBallot(person("P" + next.getAndIncrement()), Map.of(paper, v));
+					} catch (IllegalStateException e) {
+						return;
+					}
+					accepted.incrementAndGet();
+				}
+			});
+			threads.add(voter);
+			voter.start();
+		}
+		while (accepted.get() < 1000 && threads.get(0).isAlive())
+			Thread.onSpinWait();
+		s.forceClose();
+		long counted = voters(paper, next.get());
+		for (Thread voter : threads)
+			voter.join();
+		assertEquals(counted, voters(paper, next.get()));
+		assertEquals(accepted.get(), counted);
+		assertThrows(IllegalStateException.class, () -> s.castBallot(person("LATE"), Map.of(paper, v)));
+	}
+
+	@Test
+	void eligibleCountsOutliveTheRoll() {
+		List<Person> people = new ArrayList<>();
+		for (int i = 0; i < 10; i++)
+			people.add(new Person("P" + i, "Mario", "Rossi", LocalDate.of(1980 + 4 * i, 1, 1), "Milano"));
+		VoteDecider adult = new AdultDecider();
+		long adults = people.stream().filter(adult::canVote).count();
+		Utils.usePeople(people); // can only be scanned, so the counts cannot come from a query
+		Session s = SessionFixtures.runningSession(paper("Paper", ElectionMethod.CATEGORICAL, adult, "A", "B"));
+		assertEquals(adults, s.howManyEligible(adult));
+		s.forceClose();
+		assertNull(s.getRoll());
+		assertEquals(adults, s.howManyEligible(adult));
+		assertEquals(people.size(), s.howManyEligible((VoteDecider) null));
+		assertEquals(0.0, s.getPapers().get(0).getResults().getTurnout());
+	}
+
+}
@@ -0,0 +1,157 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.miniblex.svese.model.SessionFixtures.paper;
+import static org.miniblex.svese.model.SessionFixtures.person;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.miniblex.svese.Utils;
+
+class TestSessionRegistry {
+	private static final Person GUARANTOR = person("GUARANTOR");
+
+	@TempDir
+	Path dir;
+
+	@BeforeEach
+	@AfterEach
+	void clearRegistry() {
+		SessionRegistry.clear();
+		SessionRegistry.setJournalDirectory(null);
+		Utils.usePeople(null);
+	}
+
+	/**
+	 * Returns the parameters of a session of a single paper with the given title,
+	 * which started an hour ago.
+	 */
+	private static Session.SessionParameters params(String title) {
+		Session.SessionParameters params = new Session.SessionParameters();
+		params.setStart(LocalDateTime.now().minusHours(1));
+		params.setEnd(LocalDateTime.now().plusDays(1));
+		params.addPaper(paper(title, ElectionMethod.CATEGORICAL, null, "A", "B"));
+		return params;
+	}
+
+	private static Session initialize(String name, String title) {
+		return SessionRegistry.initializeSession(name, params(title), Arrays.asList(GUARANTOR));
+	}
+
+	private static void run(Session s) {
+		s.setReady();
+		s.approve(GUARANTOR);
+		assertEquals(SessionState.RUNNING, s.getState());
+	}
+
+	private long journals(String name) throws IOException {
+		try (Stream<Path> files = Files.list(dir.resolve(name))) {
+			return files.count();
+		}
+	}
+
+	@Test
+	void namesAreChecked() {
+		assertTrue(SessionRegistry.isValidName("Session_2-b"));
+		assertFalse(SessionRegistry.isValidName(null));
+		assertFalse(SessionRegistry.isValidName(""));
+		assertFalse(SessionRegistry.isValidName("a/b"));
+		assertFalse(SessionRegistry.isValidName("..")); // the parent directory
+		assertFalse(SessionRegistry.isValidName("s".repeat(65)));
+		assertThrows(IllegalArgumentException.class, () -> initialize("a b", "Paper"));
+		assertTrue(SessionRegistry.getSessions().isEmpty());
+	}
+
+	@Test
+	void sessionsAreSortedByName() {
+		Session b = initialize("b", "Paper");
+		Session a = initialize("a", "Paper");
+		assertEquals(List.of(a, b), SessionRegistry.getSessions());
+		assertSame(a, SessionRegistry.getSession("a"));
+		assertNull(SessionRegistry.getSession("c"));
+	}
+
+	@Test
+	void initializingReplacesTheSession() throws IOException {
+		SessionRegistry.setJournalDirectory(dir);
+		Session old = initialize("a", "Old");
+		Session s = initialize("a", "New");
+		assertSame(s, SessionRegistry.getSession("a"));
+		assertThrows(IllegalStateException.class, old::setReady); // its journal is closed
+		assertEquals(2, journals("a"));
+	}
+
+	@Test
+	void runningSessionIsNotReplaced() throws IOException {
+		SessionRegistry.setJournalDirectory(dir);
+		Session s = initialize("a", "Running");
+		run(s);
+		assertThrows(IllegalStateException.class, () -> initialize("a", "New"));
+		assertSame(s, SessionRegistry.getSession("a"));
+		assertEquals(1, journals("a"));
+	}
+
+	@Test
+	void discardedSessionLeavesNoJournal() throws IOException {
+		Session s = new Session("a", params("Paper"), Arrays.asList(GUARANTOR));
+		s.openJournal(dir.resolve("a"), Arrays.asList(GUARANTOR));
+		s.discard();
+		assertEquals(0, journals("a"));
+	}
+
+	@Test
+	void recoverRestoresTheLatestSessions() {
+		Utils.usePeople(List.of(GUARANTOR));
+		SessionRegistry.setJournalDirectory(dir);
+		Session running = initialize("running", "Paper");
+		run(running);
+		running.castBallot(person("VOTER"), Map.of(running.getPapers().get(0), new CategoricalVote(new Choice("A"))));
+		initialize("replaced", "Old");
+		initialize("replaced", "New");
+		SessionRegistry.clear();
+
+		SessionRegistry.recover();
+		assertEquals(List.of("replaced", "running"), SessionRegistry.getSessions().stream().map(Session::getName).toList());
+		Session s = SessionRegistry.getSession("running");
+		assertEquals(SessionState.RUNNING, s.getState());
+		assertTrue(s.getPapers().get(0).hasVoted(person("VOTER")));
+		s = SessionRegistry.getSession("replaced");
+		assertEquals(SessionState.INITIALIZED, s.getState());
+		assertEquals("New", s.getPapers().get(0).getTitle());
+		assertThrows(IllegalStateException.class, SessionRegistry::recover);
+	}
+
+}
@@ -0,0 +1,144 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+class TestVoteDecider {
+	private static final Person ADULT_MILANO = new Person("A", "Mario", "Rossi", LocalDate.of(1980, 1, 1), "Milano");
+	private static final Person ADULT_ROMA = new Person("B", "Maria", "Bianchi", LocalDate.of(1980, 1, 1), "Roma");
+	private static final Person CHILD_MILANO = new Person("C", "Luca", "Verdi", DayClock.today().minusYears(10), "Milano");
+
+	/**
+	 * An expensive decider which cannot be expressed as a query, counting its
+	 * evaluations.
+	 */
+	private static final class Expensive implements VoteDecider {
+		private static final long serialVersionUID = 1L;
+		private final transient AtomicInteger calls = new AtomicInteger();
+		private final boolean result;
+
+		private Expensive(boolean result) {
+			this.result = result;
+		}
+
+		@Override
+		public boolean canVote(Person p) {
+			calls.incrementAndGet();
+			return p != null && result;
+		}
+
+		@Override
+		public int getCost() {
+			return 1000;
+		}
+	}
+
+	@Test
+	void combinators() {
+		VoteDecider adult = new AdultDecider();
+		VoteDecider milano = new BirthPlaceDecider(List.of("Milano"));
+		VoteDecider excluded = new SsnListDecider(Set.of("A"));
+		VoteDecider d = adult.and(milano).and(excluded.negate());
+		assertFalse(d.canVote(ADULT_MILANO)); // excluded
+		assertFalse(d.canVote(ADULT_ROMA));
+		assertFalse(d.canVote(CHILD_MILANO));
+		assertTrue(adult.and(milano).canVote(ADULT_MILANO));
+		assertTrue(adult.negate().or(excluded).canVote(CHILD_MILANO));
+		assertTrue(adult.negate().or(excluded).canVote(ADULT_MILANO));
+		assertFalse(adult.negate().or(excluded).canVote(ADULT_ROMA));
+		for (VoteDecider v : List.of(d, adult.or(milano), adult.negate()))
+			assertFalse(v.canVote(null));
+		assertSame(adult, adult.negate().negate());
+		assertThrows(IllegalArgumentException.class, () -> new AndDecider());
+	}
+
+	@Test
+	void cheapestFirst() {
+		Expensive expensive = new Expensive(true);
+		VoteDecider and = expensive.and(new AdultDecider());
+		assertFalse(and.canVote(CHILD_MILANO));
+		assertEquals(0, expensive.calls.get());
+		VoteDecider or = expensive.or(new AdultDecider());
+		assertTrue(or.canVote(ADULT_ROMA));
+		assertEquals(0, expensive.calls.get());
+		assertTrue(or.canVote(CHILD_MILANO));
+		assertEquals(1, expensive.calls.get());
+	}
+
+	@Test
+	void flattened() {
+		VoteDecider adult = new AdultDecider();
+		VoteDecider milano = new BirthPlaceDecider(List.of("Milano"));
+		Expensive expensive = new Expensive(true);
+		assertEquals(new AndDecider(adult, milano, expensive), expensive.and(milano).and(adult));
+		assertEquals(new AndDecider(adult, milano).hashCode(), milano.and(adult).hashCode());
+		assertEquals(adult.getCost() + milano.getCost(), adult.and(milano).getCost());
+	}
+
+	@Test
+	void pushdown() {
+		VoteDecider adult = new AdultDecider();
+		Expensive expensive = new Expensive(true);
+		assertNotNull(adult.and(new BirthPlaceDecider(List.of("Milano"))).toSpecification());
+		assertNotNull(adult.or(new SsnListDecider(Set.of("A"))).negate().toSpecification());
+		// only the adults are read, then tested against the expensive decider
+		assertNull(adult.and(expensive).toSpecification());
+		assertNotNull(adult.and(expensive).toFilter());
+		assertNull(adult.or(expensive).toFilter());
+		assertNull(adult.and(expensive).negate().toFilter());
+		// a list too long for a query
+		String[] ssns = new String[SsnListDecider.MAX_QUERY_SIZE + 1];
+		for (int i = 0; i < ssns.length; i++)
+			ssns[i] = "SSN" + i;
+		assertNull(new SsnListDecider(List.of(ssns)).toSpecification());
+	}
+
+	@Test
+	void serializable() throws IOException, ClassNotFoundException {
+		VoteDecider d = new AdultDecider().and(new BirthPlaceDecider(List.of("Milano", "Monza"))).and(new SsnListDecider(Set.of("A")).negate());
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+			out.writeObject(d);
+		}
+		try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+			VoteDecider read = (VoteDecider) in.readObject();
+			assertEquals(d, read);
+			assertEquals(d.canVote(ADULT_MILANO), read.canVote(ADULT_MILANO));
+		}
+	}
+
+}
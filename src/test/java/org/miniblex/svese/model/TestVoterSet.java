@@ -0,0 +1,84 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.Test;
+
+class TestVoterSet {
+
+	private static String randomSsn(Random r) {
+		StringBuilder sb = new StringBuilder();
+		int len = r.nextInt(20);
+		for (int i = 0; i < len; i++)
+			sb.append(r.nextInt(50) == 0 ? (char) ('À' + r.nextInt(30)) : (char) ('0' + r.nextInt(43)));
+		return sb.toString();
+	}
+
+	@Test
+	void sameAsSet() {
+		Random r = new Random(6);
+		Set<String> expected = new HashSet<>();
+		List<String> ssns = new ArrayList<>();
+		VoterSet set = new VoterSet();
+		for (int i = 0; i < 200_000; i++) {
+			String ssn = r.nextInt(4) == 0 && !ssns.isEmpty() ? ssns.get(r.nextInt(ssns.size())) : randomSsn(r);
+			ssns.add(ssn);
+			if (r.nextInt(5) == 0)
+				assertEquals(expected.remove(ssn), set.remove(ssn), ssn);
+			else
+				assertEquals(expected.add(ssn), set.add(ssn), ssn);
+		}
+		assertEquals(expected.size(), set.size());
+		for (String ssn : ssns)
+			assertEquals(expected.contains(ssn), set.contains(ssn), ssn);
+	}
+
+	@Test
+	void similarSsns() {
+		VoterSet set = new VoterSet();
+		assertTrue(set.add(""));
+		assertTrue(set.add("0"));
+		assertTrue(set.add("00"));
+		assertTrue(set.add("RSSMRA85T10A562S"));
+		assertTrue(set.add("RSSMRA85T10A562T"));
+		assertTrue(set.add("RSSMRA85T10A562S0"));
+		assertFalse(set.add("RSSMRA85T10A562S"));
+		assertFalse(set.contains("RSSMRA85T10A562"));
+		assertEquals(6, set.size());
+	}
+
+	@Test
+	void concurrentAdd() {
+		VoterSet set = new VoterSet();
+		long added = IntStream.range(0, 400_000).parallel().filter(i -> set.add(Integer.toString(i % 100_000))).count();
+		assertEquals(100_000, added);
+		assertEquals(100_000, set.size());
+	}
+
+}
@@ -0,0 +1,184 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.model;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.miniblex.svese.model.SessionFixtures.paper;
+import static org.miniblex.svese.model.SessionFixtures.person;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.miniblex.svese.Utils;
+
+class TestVotingPaper {
+	private static final List<Person> PEOPLE = List.of(person("P0"), person("P1"), person("P2"), person("P3"));
+
+	@TempDir
+	Path dir;
+
+	private final Map<String, PaperResults> stored = new HashMap<>();
+	private Session session;
+
+	@BeforeEach
+	void useRepositories() {
+		Utils.usePeople(PEOPLE);
+		Utils.useResults(stored);
+	}
+
+	@AfterEach
+	void clearRepositories() {
+		if (session != null)
+			session.retire();
+		Utils.usePeople(null);
+		EligibilityCache.invalidate();
+	}
+
+	/**
+	 * Returns the categorical paper of a closed session, journaled if
+	 * {@code journaled}, in which P0 and P1 voted A and P2 voted B.
+	 */
+	private VotingPaper closedPaper(boolean journaled) throws IOException {
+		session = SessionFixtures.session(paper("Paper", ElectionMethod.CATEGORICAL, new AdultDecider(), "A", "B"));
+		if (journaled)
+			session.openJournal(dir, session.getGuarantors());
+		session.setReady();
+		session.approve(person("GUARANTOR"));
+		VotingPaper paper = session.getPapers().get(0);
+		for (int i = 0; i < 3; i++)
+			session.castBallot(PEOPLE.get(i), Map.of(paper, new CategoricalVote(new Choice(i < 2 ? "A" : "B"))));
+		session.forceClose();
+		return paper;
+	}
+
+	private static String key(VotingPaper paper) {
+		return PaperResults.idOf(paper.getSession().getJournalId(), paper.getId());
+	}
+
+	private static void assertResults(long a, long b, long totalVotes, double turnout, VotingPaper.Results r) {
+		assertEquals(a, r.getScore(new Choice("A")));
+		assertEquals(b, r.getScore(new Choice("B")));
+		assertEquals(totalVotes, r.getTotalVotes());
+		assertEquals(turnout, r.getTurnout());
+	}
+
+	@Test
+	void closedResultsAreStoredOnce() throws IOException {
+		VotingPaper paper = closedPaper(true);
+		VotingPaper.Results r = paper.getResults();
+		assertResults(2, 1, 3, 0.75, r);
+		PaperResults pr = stored.get(key(paper));
+		assertEquals(3, pr.getTotalVotes());
+		assertEquals(0.75, pr.getTurnout());
+		stored.clear();
+		assertSame(r, paper.getResults()); // neither loaded nor stored again
+		assertTrue(stored.isEmpty());
+	}
+
+	@Test
+	void storedResultsAreLoaded() throws IOException {
+		VotingPaper paper = closedPaper(true);
+		stored.put(key(paper), new PaperResults(key(paper), new long[] { 1, 2 }, 3, 0.5));
+		assertResults(1, 2, 3, 0.5, paper.getResults());
+	}
+
+	@Test
+	void mismatchedResultsAreGenerated() throws IOException {
+		VotingPaper paper = closedPaper(true);
+		stored.put(key(paper), new PaperResults(key(paper), new long[] { 1, 2 }, 4, 0.5)); // of another number of votes
+		assertResults(2, 1, 3, 0.75, paper.getResults());
+		assertEquals(3, stored.get(key(paper)).getTotalVotes()); // replaced
+	}
+
+	@Test
+	void unjournaledResultsAreNotStored() throws IOException {
+		VotingPaper paper = closedPaper(false);
+		VotingPaper.Results r = paper.getResults();
+		assertResults(2, 1, 3, 0.75, r);
+		assertTrue(stored.isEmpty());
+		assertSame(r, paper.getResults());
+	}
+
+	@Test
+	void resultsOfUnclosedPapersAreNotStored() {
+		VoteDecider anyone = p -> p != null; // counted by scanning the people
+		session = SessionFixtures.session(paper("Paper", ElectionMethod.CATEGORICAL, anyone, "A", "B"));
+		VotingPaper paper = session.getPapers().get(0);
+		VotingPaper.Results r = paper.getResults();
+		assertResults(0, 0, 0, 0, r);
+		assertNotSame(r, paper.getResults());
+		assertTrue(stored.isEmpty());
+	}
+
+	@Test
+	void treeCountsTheEligiblePeopleOnce() {
+		AtomicInteger scans = new AtomicInteger();
+		List<Person> people = new ArrayList<>(PEOPLE) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			public void forEach(Consumer<? super Person> action) {
+				scans.incrementAndGet();
+				super.forEach(action);
+			}
+		};
+		Utils.usePeople(people);
+		VoteDecider anyone = p -> p != null; // counted by scanning the people
+		VoteDecider even = p -> p != null && (p.getSsn().charAt(1) - '0') % 2 == 0;
+		VoteDecider odd = p -> p != null && (p.getSsn().charAt(1) - '0') % 2 == 1;
+		Map<Choice, VotingPaper> choices = new LinkedHashMap<>();
+		choices.put(new Choice("Left"), paper("Left", ElectionMethod.CATEGORICAL, even, "A", "B"));
+		choices.put(new Choice("Right"), paper("Right", ElectionMethod.CATEGORICAL, odd, "C", "D"));
+		choices.put(new Choice("None"), null);
+		session = SessionFixtures.session(new VotingPaper("Party", choices, ElectionMethod.PREFERENCED, anyone));
+		VotingPaper party = session.getPapers().get(0);
+
+		ResultTree tree = party.getResultTree();
+		assertEquals(1, scans.get());
+		assertSame(party, tree.getPaper());
+		assertEquals(List.of(new Choice("Left"), new Choice("Right")), List.copyOf(tree.getSubtrees().keySet()));
+		assertSame(party.getSubPaper(new Choice("Left")), tree.getSubtree(new Choice("Left")).getPaper());
+		assertEquals(0, tree.getSubtree(new Choice("Right")).getResults().getTotalVotes());
+		long version = EligibilityCache.version();
+		long day = DayClock.epochDay();
+		assertEquals(4, EligibilityCache.get(anyone, version, day));
+		assertEquals(2, EligibilityCache.get(even, version, day));
+		assertEquals(2, EligibilityCache.get(odd, version, day));
+
+		EligibilityCache.invalidate();
+		party.getResults();
+		party.getSubPaper(new Choice("Left")).getResults();
+		party.getSubPaper(new Choice("Right")).getResults();
+		assertEquals(1 + 3, scans.get()); // one scan by paper
+	}
+
+}
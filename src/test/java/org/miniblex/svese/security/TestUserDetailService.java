@@ -0,0 +1,173 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.security;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.spy;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.PersonRepository;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionFixtures;
+import org.miniblex.svese.model.SessionRegistry;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.test.util.ReflectionTestUtils;
+
+class TestUserDetailService {
+	private static final Person ADMIN = SessionFixtures.person("ADMIN");
+
+	private final long[] now = { 0 };
+	private PersonRepository repo;
+	private SVeSEUserDetailService service;
+
+	@BeforeAll
+	static void setAdmin() {
+		if (SessionRegistry.getSessions().isEmpty()) // otherwise set by the tests which added them
+			Session.setAdmin(ADMIN);
+	}
+
+	@BeforeEach
+	void createService() {
+		repo = mock(PersonRepository.class);
+		when(repo.findById(anyString())).thenReturn(Optional.empty());
+		service = new SVeSEUserDetailService(repo, () -> now[0]);
+	}
+
+	/**
+	 * Returns a new user with the given SSN, found by the repository.
+	 */
+	private Person user(String ssn) {
+		Person p = spy(SessionFixtures.person(ssn));
+		doReturn("hash of " + ssn).when(p).getPwHash();
+		doReturn(true).when(p).isEnabled();
+		when(repo.findById(ssn)).thenReturn(Optional.of(p));
+		return p;
+	}
+
+	private void advanceSeconds(long seconds) {
+		now[0] += TimeUnit.SECONDS.toNanos(seconds);
+	}
+
+	@Test
+	void hitAndMiss() {
+		user("USER");
+		user("OTHER");
+		UserDetails first = service.loadUserByUsername("USER");
+		UserDetails second = service.loadUserByUsername("USER");
+		verify(repo, times(1)).findById("USER");
+		assertNotSame(first, second); // the returned one may have its password erased
+		assertEquals("USER", second.getUsername());
+		assertEquals("hash of USER", second.getPassword());
+		assertTrue(second.isEnabled());
+		assertEquals("OTHER", service.loadUserByUsername("OTHER").getUsername());
+		verify(repo, times(1)).findById("OTHER");
+	}
+
+	@Test
+	void usersExpire() {
+		user("USER");
+		service.loadUserByUsername("USER");
+		advanceSeconds(59);
+		service.loadUserByUsername("USER");
+		verify(repo, times(1)).findById("USER");
+		advanceSeconds(1);
+		service.loadUserByUsername("USER");
+		verify(repo, times(2)).findById("USER");
+	}
+
+	@Test
+	void unknownUsersExpireSooner() {
+		service.loadUserByUsername("NOBODY");
+		advanceSeconds(9);
+		service.loadUserByUsername("NOBODY");
+		verify(repo, times(1)).findById("NOBODY");
+		advanceSeconds(1);
+		service.loadUserByUsername("NOBODY");
+		verify(repo, times(2)).findById("NOBODY");
+		user("NOBODY"); // registered in the meantime
+		advanceSeconds(10);
+		assertEquals("hash of NOBODY", service.loadUserByUsername("NOBODY").getPassword());
+	}
+
+	@Test
+	void leastRecentlyUsedIsEvicted() {
+		user("FIRST");
+		user("SECOND");
+		service.loadUserByUsername("FIRST");
+		service.loadUserByUsername("SECOND");
+		for (int i = 2; i < SVeSEUserDetailService.CACHE_SIZE; i++)
+			service.loadUserByUsername("P" + i);
+		service.loadUserByUsername("FIRST"); // now more recently used than SECOND
+		service.loadUserByUsername("ONE MORE");
+		service.loadUserByUsername("FIRST");
+		service.loadUserByUsername("SECOND");
+		verify(repo, times(1)).findById("FIRST");
+		verify(repo, times(2)).findById("SECOND");
+	}
+
+	@Test
+	void rolesChangeDropsUsers() {
+		assumeTrue(SessionRegistry.getSessions().isEmpty()); // the admin can only be changed before any session
+		Person p = user("USER");
+		SimpleGrantedAuthority admin = new SimpleGrantedAuthority("ROLE_ADMIN");
+		try {
+			assertFalse(service.loadUserByUsername("USER").getAuthorities().contains(admin));
+			Session.setAdmin(p);
+			assertTrue(service.loadUserByUsername("USER").getAuthorities().contains(admin));
+			verify(repo, times(2)).findById("USER");
+		} finally {
+			Session.setAdmin(ADMIN);
+		}
+		assertFalse(service.loadUserByUsername("USER").getAuthorities().contains(admin));
+	}
+
+	@Test
+	void writtenPeopleAreDropped() {
+		Person p = user("USER");
+		user("OTHER");
+		assertTrue(service.loadUserByUsername("USER").isEnabled());
+		service.loadUserByUsername("OTHER");
+		doReturn(false).when(p).isEnabled();
+		ReflectionTestUtils.invokeMethod(p, "changed"); // as JPA after disabling the account
+		assertFalse(service.loadUserByUsername("USER").isEnabled());
+		verify(repo, times(2)).findById("USER");
+		service.loadUserByUsername("OTHER");
+		verify(repo, times(1)).findById("OTHER");
+		PersonRepository.peopleChanged(); // after a bulk write
+		service.loadUserByUsername("OTHER");
+		verify(repo, times(2)).findById("OTHER");
+	}
+
+}
@@ -0,0 +1,132 @@
+// Copyright (C) 2021 Alessandro "Sgorblex" Clerici Lorenzini and Edoardo "Miniman" Della Rossa.
+//
+// This file is part of SVeSE.
+//
+// SVeSE is free software: you can redistribute it and/or modify
+// it under the terms of the GNU General Public License as published by
+// the Free Software Foundation, either version 3 of the License, or
+// (at your option) any later version.
+//
+// SVeSE is distributed in the hope that it will be useful,
+// but WITHOUT ANY WARRANTY; without even the implied warranty of
+// MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+// GNU General Public License for more details.
+//
+// You should have received a copy of the GNU General Public License
+// along with SVeSE.  If not, see <https://www.gnu.org/licenses/>.
+
+package org.miniblex.svese.views.turnout;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import com.vaadin.flow.component.html.Label;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.miniblex.svese.Utils;
+import org.miniblex.svese.model.AdultDecider;
+import org.miniblex.svese.model.CategoricalVote;
+import org.miniblex.svese.model.Choice;
+import org.miniblex.svese.model.ElectionMethod;
+import org.miniblex.svese.model.Person;
+import org.miniblex.svese.model.Session;
+import org.miniblex.svese.model.SessionFixtures;
+import org.miniblex.svese.model.SessionRegistry;
+import org.miniblex.svese.model.VotingPaper;
+import org.miniblex.svese.security.SecurityService;
+
+class TestTurnoutView {
+	private static final Person ADMIN = SessionFixtures.person("ADMIN");
+	private static final Person GUARANTOR = SessionFixtures.person("GUARANTOR");
+	private static final List<Person> PEOPLE = List.of(SessionFixtures.person("P0"), SessionFixtures.person("P1"), SessionFixtures.person("P2"), SessionFixtures.person("P3"));
+
+	@BeforeEach
+	void setUp() {
+		SessionFixtures.clearRegistry();
+		Session.setAdmin(ADMIN);
+		Utils.usePeople(PEOPLE);
+	}
+
+	@AfterEach
+	void tearDown() {
+		SessionFixtures.clearRegistry();
+		Utils.usePeople(null);
+	}
+
+	/**
+	 * Initializes a session of the registry with the given name, guarantor and
+	 * a categorical paper for adults, and starts it.
+	 */
+	private static Session runningSession(String name, Person guarantor) {
+		Session.SessionParameters params = new Session.SessionParameters();
+		params.setStart(LocalDateTime.now().minusHours(1));
+		params.setEnd(LocalDateTime.now().plusDays(1));
+		Map<Choice, VotingPaper> choices = new LinkedHashMap<>();
+		choices.put(new Choice("A"), null);
+		choices.put(new Choice("B"), null);
+		params.addPaper(new VotingPaper("Paper", choices, ElectionMethod.CATEGORICAL, new AdultDecider()));
+		Session s = SessionRegistry.initializeSession(name, params, Arrays.asList(guarantor));
+		s.setReady();
+		s.approve(guarantor);
+		return s;
+	}
+
+	private static TurnoutView view(Person authenticated) {
+		SecurityService sec = mock(SecurityService.class);
+		when(sec.getAuthenticatedPerson()).thenReturn(authenticated);
+		return new TurnoutView(sec);
+	}
+
+	private static List<String> labels(TurnoutView v) {
+		return v.getChildren().filter(Label.class::isInstance).map(c -> ((Label) c).getText()).collect(Collectors.toList());
+	}
+
+	private static void vote(Session s, Person p) {
+		VotingPaper paper = s.getPapers().get(0);
+		s.castBallot(p, Map.of(paper, new CategoricalVote(new Choice("A"))));
+	}
+
+	@Test
+	void turnoutFollowsTheVoteCount() {
+		Session s = runningSession("turnout", GUARANTOR);
+		TurnoutView v = view(GUARANTOR);
+		VotingPaper paper = s.getPapers().get(0);
+		assertEquals(0, v.turnout(s, paper));
+		vote(s, PEOPLE.get(0));
+		assertEquals(0.25, v.turnout(s, paper));
+		vote(s, PEOPLE.get(1));
+		vote(s, PEOPLE.get(2));
+		assertEquals(0.75, v.turnout(s, paper)); // the eligible people are not counted again
+	}
+
+	@Test
+	void statesAreRefreshed() {
+		Session s = runningSession("turnout", GUARANTOR);
+		TurnoutView v = view(GUARANTOR);
+		assertEquals(List.of("State: RUNNING"), labels(v));
+		s.forceClose();
+		assertEquals(List.of("State: RUNNING"), labels(v));
+		v.update();
+		assertEquals(List.of("State: CLOSED"), labels(v));
+	}
+
+	@Test
+	void onlyGuaranteedSessionsAreShown() {
+		runningSession("first", GUARANTOR);
+		runningSession("second", SessionFixtures.person("OTHER"));
+		assertEquals(1, labels(view(GUARANTOR)).size());
+		assertEquals(2, labels(view(ADMIN)).size());
+		assertEquals(List.of("No session is currently available"), labels(view(SessionFixtures.person("OTHER2"))));
+	}
+
+}